@@ -0,0 +1,97 @@
+package benchmark;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.MoveGenerator;
+import chess.MoveList;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the engine entry points the server calls on every move.
+ * Each benchmark covers every piece or every legal move of the side to move.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+
+    @Param({Positions.START, Positions.KIWIPETE, Positions.ENDGAME})
+    public String position;
+
+    private ChessGame game;
+    private ChessBoard board;
+    private ChessGame.TeamColor toMove;
+    private Collection<ChessPosition> pieces;
+    private List<ChessMove> legalMoves;
+    private final MoveList packedMoves = new MoveList();
+
+    @Setup
+    public void setUp() {
+        game = Positions.load(position);
+        board = game.getBoard();
+        toMove = game.getTeamTurn();
+        pieces = game.teamsPosition(toMove);
+        legalMoves = new ArrayList<>();
+        MoveGenerator.generateLegalMoves(board, toMove, legalMoves);
+        MoveGenerator.generateLegalMoves(board, toMove, packedMoves);
+    }
+
+    @Benchmark
+    public void pieceMoves(Blackhole blackhole) {
+        for(ChessPosition piece : pieces){
+            blackhole.consume(board.getPiece(piece).pieceMoves(board, piece));
+        }
+    }
+
+    @Benchmark
+    public void validMoves(Blackhole blackhole) {
+        for(ChessPosition piece : pieces){
+            blackhole.consume(game.validMoves(piece));
+        }
+    }
+
+    @Benchmark
+    public int generatePackedMoves() {
+        packedMoves.clear();
+        MoveGenerator.generateLegalMoves(board, toMove, packedMoves);
+        return packedMoves.size();
+    }
+
+    @Benchmark
+    public boolean isInCheck() {
+        return game.isInCheck(toMove);
+    }
+
+    @Benchmark
+    public boolean isInCheckmate() {
+        return game.isInCheckmate(toMove);
+    }
+
+    @Benchmark
+    public void makeMove() throws InvalidMoveException {
+        for(ChessMove move : legalMoves){
+            game.makeMove(move);
+            game.unmakeMove();
+        }
+    }
+
+    @Benchmark
+    public void makePackedMove() {
+        for(int i = 0; i < packedMoves.size(); i++){
+            int move = packedMoves.get(i);
+            board.unmakeMove(move, board.makeMove(move));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.GameCodec;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the binary game codec with the Gson encoding games used to be stored in.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameCodecBenchmark {
+
+    @Param({Positions.START, Positions.KIWIPETE, Positions.ENDGAME})
+    public String position;
+
+    private final Gson gson = new Gson();
+    private ChessGame game;
+    private byte[] encoded;
+    private String json;
+
+    @Setup
+    public void setUp() {
+        game = Positions.load(position);
+        encoded = GameCodec.encode(game);
+        json = gson.toJson(game);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return GameCodec.encode(game);
+    }
+
+    @Benchmark
+    public ChessGame decode() {
+        return GameCodec.decode(encoded);
+    }
+
+    @Benchmark
+    public String encodeJson() {
+        return gson.toJson(game);
+    }
+
+    @Benchmark
+    public ChessGame decodeJson() {
+        return gson.fromJson(json, ChessGame.class);
+    }
+}
@@ -0,0 +1,32 @@
+package benchmark;
+
+import chess.ChessGame;
+
+import java.util.Map;
+
+/**
+ * Standard positions the benchmarks run against.
+ */
+final class Positions {
+
+    static final String START = "start";
+    static final String KIWIPETE = "kiwipete";
+    static final String ENDGAME = "endgame";
+
+    private static final Map<String, String> FENS = Map.of(
+            START, "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            KIWIPETE, "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            ENDGAME, "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"
+    );
+
+    private Positions() {
+    }
+
+    static ChessGame load(String name) {
+        String fen = FENS.get(name);
+        if(fen == null){
+            throw new IllegalArgumentException("Unknown position: " + name);
+        }
+        return ChessGame.fromFen(fen);
+    }
+}
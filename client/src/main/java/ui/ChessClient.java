@@ -56,6 +56,7 @@ public class ChessClient {
                 make-move <STARTPOSITION> <ENDPOSITION>
                 resign
                 highlight <POSITION>
+                threats
                 help
                 """;
        }
@@ -81,6 +82,7 @@ public class ChessClient {
                 case "list" -> listGames();
                 case "redraw" -> redrawBoard();
                 case "highlight" -> highlightMoves(param);
+                case "threats" -> showThreats();
                 case "observe" -> observeGame(param);
                 case "leave" -> leaveGame();
                 case "make-move" -> makeMove(param);
@@ -142,6 +144,14 @@ public class ChessClient {
     }
 
 
+    private String showThreats() {
+        printBoard = new PrintBoard(game);
+
+        printBoard.printThreats(userColor);
+
+        return "Squares your opponent attacks";
+    }
+
     private ChessPosition convertToPosition(String input) throws ResponseException {
         var columnLetter =Character.toUpperCase(input.charAt(0));
         int columnNum = (int) columnLetter - (int) 'A' + 1;
@@ -151,7 +161,7 @@ public class ChessClient {
         }
 
         var rowNum = Character.getNumericValue(input.charAt(1));
-        return new ChessPosition(rowNum, columnNum);
+        return ChessPosition.of(rowNum, columnNum);
     }
 
     private String observeGame(String[] param) throws ResponseException, URISyntaxException {
@@ -10,6 +10,7 @@ import static ui.EscapeSequences.*;
 
 public class PrintBoard {
     ChessBoard game;
+    private ChessGame.TeamColor threatenedBy;
 
     public PrintBoard(ChessBoard game){
         this.game = game;
@@ -57,6 +58,12 @@ public class PrintBoard {
         out.println(board);
     }
 
+    public void printThreats(ChessGame.TeamColor color){
+        threatenedBy = color == ChessGame.TeamColor.BLACK ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        printBoard(color, null);
+        threatenedBy = null;
+    }
+
     private String startRow(boolean reverse){
         StringBuilder board = new StringBuilder();
         board.append(SET_BG_COLOR_BLACK);
@@ -92,12 +99,14 @@ public class PrintBoard {
 
     private String squaresColor(int row, int col, ChessPosition position, HashSet<ChessPosition> possibleSquares){
 
-        ChessPosition squares = new ChessPosition(row, col);
+        ChessPosition squares = ChessPosition.of(row, col);
 
         if(squares.equals(position)){
             return SET_BG_COLOR_GREEN;
         } else if (possibleSquares.contains(squares)){
             return SET_BG_COLOR_DARK_GREEN;
+        } else if (threatenedBy != null && game.isSquareAttacked(squares, threatenedBy)){
+            return SET_BG_COLOR_YELLOW;
         }else if (Math.ceilMod(row, 2) == 0) {
             if (Math.ceilMod(col, 2) == 0) {
                 return SET_BG_COLOR_RED;
@@ -115,7 +124,7 @@ public class PrintBoard {
 
     private String pieceColor(int row, int col){
         StringBuilder color = new StringBuilder();
-        ChessPosition position = new ChessPosition(row, col);
+        ChessPosition position = ChessPosition.of(row, col);
         ChessPiece piece = game.getPiece(position);
 
         if(piece != null){
@@ -9,6 +9,8 @@ import websocket.messages.ServerMessage;
 import java.util.Scanner;
 
 public class Repl implements NotificationHandler {
+    private static final Gson GSON = new Gson();
+
     private final ChessClient client;
     public Repl(String serverURL) {
         this.client = new ChessClient(serverURL, this);
@@ -36,7 +38,11 @@ public class Repl implements NotificationHandler {
 
 
     public void notify(String notification) {
-        ServerMessage serverMessage = new Gson().fromJson(notification, ServerMessage.class);
+        notify(GSON.fromJson(notification, ServerMessage.class));
+    }
+
+    @Override
+    public void notify(ServerMessage serverMessage) {
         switch(serverMessage.getServerMessageType()){
             case LOAD_GAME:
                 loadGame(serverMessage);
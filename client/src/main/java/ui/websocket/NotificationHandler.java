@@ -6,4 +6,12 @@ import websocket.messages.ServerMessage;
 
 public interface NotificationHandler {
     void notify(String notification);
+
+    /**
+     * Takes a message the facade already decoded, from either JSON or a binary
+     * frame. Handlers that override this skip turning it back into JSON.
+     */
+    default void notify(ServerMessage message) {
+        notify(message.toString());
+    }
 }
@@ -4,18 +4,45 @@ import chess.ChessBoard;
 import chess.ChessMove;
 import com.google.gson.Gson;
 import exception.ResponseException;
+import websocket.BinaryFrames;
 import websocket.commands.UserGameCommand;
+import websocket.messages.ServerMessage;
 
 import javax.websocket.*;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
 
+/**
+ * The client end of the game WebSocket.
+ * <p>
+ * Games are joined asking for MOVE messages, so after the first board the server
+ * only sends each move played. The facade applies them to its own copy of the
+ * board and hands the handler a LOAD_GAME for it, so the handler always sees whole
+ * boards, along with the move notice the server leaves out of MOVE messages.
+ * If a move's position hash does not match the copy, the copy has drifted
+ * and the facade asks the server for the whole board again. MOVE messages that
+ * arrive before that board are dropped, since it already includes them.
+ * <p>
+ * CONNECT also asks for binary frames. A server that supports them answers in
+ * {@link BinaryFrames}, and from then on this facade sends its commands that way
+ * too; a server that does not ignores the request and everything stays JSON.
+ */
 public class WebSocketFacade extends Endpoint {
+    private static final Gson GSON = new Gson();
+
     Session session;
     NotificationHandler notificationHandler;
     int gameID;
     ChessBoard game;
+    String authToken;
+    // Ply of the last MOVE applied to game, or -1 if game came from a LOAD_GAME
+    int ply = -1;
+    // Set while a RESYNC is waiting on its LOAD_GAME, so one drift asks for one board
+    boolean resyncPending;
+    // Set once the server answers in binary frames; volatile since messages arrive on the socket's thread
+    volatile boolean binaryFrames;
 
     public WebSocketFacade(String url, NotificationHandler notificationHandler) throws ResponseException {
         try{
@@ -29,7 +56,15 @@ public class WebSocketFacade extends Endpoint {
             this.session.addMessageHandler(new MessageHandler.Whole<String>() {
                 @Override
                 public void onMessage(String message) {
-                    notificationHandler.notify(message);
+                    receive(GSON.fromJson(message, ServerMessage.class));
+                }
+            });
+            this.session.addMessageHandler(new MessageHandler.Whole<ByteBuffer>() {
+                @Override
+                public void onMessage(ByteBuffer message) {
+                    // The server only sends binary frames once it has agreed to them
+                    binaryFrames = true;
+                    receive(BinaryFrames.decodeMessage(message));
                 }
             });
         } catch (DeploymentException | URISyntaxException | IOException e) {
@@ -41,11 +76,79 @@ public class WebSocketFacade extends Endpoint {
     public void onOpen(Session session, EndpointConfig endpointConfig) {
     }
 
+    private void receive(ServerMessage serverMessage) {
+        switch (serverMessage.getServerMessageType()) {
+            case LOAD_GAME -> {
+                game = serverMessage.getGame();
+                ply = -1;
+                resyncPending = false;
+                notificationHandler.notify(serverMessage);
+            }
+            case MOVE -> {
+                if (resyncPending) {
+                    return;
+                }
+                if (applyMove(serverMessage)) {
+                    notificationHandler.notify(new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME, game));
+                    notificationHandler.notify(moveNotice(serverMessage.getMove()));
+                } else {
+                    resync();
+                }
+            }
+            default -> notificationHandler.notify(serverMessage);
+        }
+    }
+
+    /*
+     * Commands go out as binary frames once the server has answered in them, and as
+     * JSON otherwise, which every server understands.
+     */
+    private void send(UserGameCommand action) throws IOException {
+        if (binaryFrames) {
+            this.session.getBasicRemote().sendBinary(ByteBuffer.wrap(BinaryFrames.encodeCommand(action)));
+        } else {
+            this.session.getBasicRemote().sendText(GSON.toJson(action));
+        }
+    }
+
+    /**
+     * @return false if there was no board to apply the move to, or the result does not match the server's
+     */
+    private boolean applyMove(ServerMessage message) {
+        if (game == null || message.getMove() == null || (ply >= 0 && message.getPly() != ply + 1)) {
+            return false;
+        }
+        game.makeMove(message.getMove());
+        ply = message.getPly();
+        return game.getZobristKey() == message.getPositionHash();
+    }
+
+    // The same text the server sends clients that take whole boards
+    private ServerMessage moveNotice(ChessMove move) {
+        var team = game.getPiece(move.getEndPosition()).getTeamColor();
+        String text = "message: " + team + " team moved " + move.getStartPosition() + " to " + move.getEndPosition();
+        return new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION, text);
+    }
+
+    private void resync() {
+        game = null;
+        resyncPending = true;
+        try {
+            var action = new UserGameCommand(UserGameCommand.CommandType.RESYNC, authToken, gameID, null);
+            send(action);
+        } catch (IOException e) {
+            // Nothing is coming back, so let the next MOVE ask again
+            resyncPending = false;
+            System.err.println("Unable to reload the board: " + e.getMessage());
+        }
+    }
+
     public void joinGame(String authToken, Integer gameId) throws ResponseException {
         try{
-            var action = new UserGameCommand(UserGameCommand.CommandType.CONNECT, authToken, gameId, null);
+            var action = new UserGameCommand(UserGameCommand.CommandType.CONNECT, authToken, gameId, null, true, true);
             gameID = gameId;
-            this.session.getBasicRemote().sendText(new Gson().toJson(action));
+            this.authToken = authToken;
+            send(action);
         } catch (IOException e) {
             throw new ResponseException(500, e.getMessage());
         }
@@ -54,7 +157,7 @@ public class WebSocketFacade extends Endpoint {
     public void leaveGame(String authToken, Integer gameId) throws ResponseException {
         try{
             var action = new UserGameCommand(UserGameCommand.CommandType.LEAVE, authToken, gameId, null);
-            this.session.getBasicRemote().sendText(new Gson().toJson(action));
+            send(action);
             this.session.close();
         } catch (IOException e) {
             throw new ResponseException(500, e.getMessage());
@@ -64,7 +167,7 @@ public class WebSocketFacade extends Endpoint {
     public void resignGame(String authToken, Integer gameId) throws ResponseException {
         try{
             var action = new UserGameCommand(UserGameCommand.CommandType.RESIGN, authToken, gameId, null);
-            this.session.getBasicRemote().sendText(new Gson().toJson(action));
+            send(action);
             this.session.close();
         } catch (IOException e) {
             throw new ResponseException(500, e.getMessage());
@@ -75,7 +178,7 @@ public class WebSocketFacade extends Endpoint {
         try{
             System.out.println(gameId);
             var action = new UserGameCommand(UserGameCommand.CommandType.MAKE_MOVE, authToken, gameId, move);
-            this.session.getBasicRemote().sendText(new Gson().toJson(action));
+            send(action);
         } catch (IOException e) {
             throw new ResponseException(500, e.getMessage());
         }
@@ -83,9 +186,10 @@ public class WebSocketFacade extends Endpoint {
 
     public void observeGame(String authToken, Integer gameId) throws ResponseException {
         try{
-            var action2 = new UserGameCommand(UserGameCommand.CommandType.CONNECT, authToken, gameId, null);
+            var action2 = new UserGameCommand(UserGameCommand.CommandType.CONNECT, authToken, gameId, null, true, true);
             gameID = gameId;
-            this.session.getBasicRemote().sendText(new Gson().toJson(action2));
+            this.authToken = authToken;
+            send(action2);
         } catch (IOException e) {
             throw new ResponseException(500, e.getMessage());
         }
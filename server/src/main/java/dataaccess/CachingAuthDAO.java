@@ -0,0 +1,106 @@
+package dataaccess;
+
+import exception.ResponseException;
+import model.AuthData;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An AuthDAO that remembers recent token lookups in front of another AuthDAO.
+ * <p>
+ * Known tokens are kept for the cache TTL, and unknown tokens are remembered for
+ * a shorter negative TTL so repeated bad tokens do not each reach the database.
+ * Deleting a token takes effect immediately. A token that expires in the backing
+ * DAO can still be accepted for up to the cache TTL, so that TTL should be short
+ * next to the token lifetime.
+ */
+public class CachingAuthDAO implements AuthDAO {
+
+    private final AuthDAO backing;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+
+    private final Map<String, Entry> cache;
+
+    public CachingAuthDAO(AuthDAO backing, int maxEntries, long ttlMillis, long negativeTtlMillis) {
+        this.backing = backing;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMillis);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > CachingAuthDAO.this.maxEntries;
+            }
+        };
+    }
+
+    // A null auth marks a token the backing DAO did not know
+    private record Entry(AuthData auth, long expiresAt) {
+        boolean isLive(long now) {
+            return now - expiresAt < 0;
+        }
+    }
+
+    @Override
+    public void createAuth(AuthData authData) throws ResponseException {
+        backing.createAuth(authData);
+        synchronized (this) {
+            cache.put(authData.authToken(), new Entry(authData, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException, ResponseException {
+        long now = System.nanoTime();
+        synchronized (this) {
+            Entry entry = cache.get(authToken);
+            if (entry != null && entry.isLive(now)) {
+                if (entry.auth() == null) {
+                    throw new DataAccessException("Auth Token doesn't exist");
+                }
+                return entry.auth();
+            }
+            cache.remove(authToken);
+        }
+
+        AuthData auth;
+        try {
+            auth = backing.getAuth(authToken);
+        } catch (DataAccessException e) {
+            remember(authToken, new Entry(null, System.nanoTime() + negativeTtlNanos));
+            throw e;
+        }
+        remember(authToken, new Entry(auth, System.nanoTime() + ttlNanos));
+        return auth;
+    }
+
+    /*
+     * A lookup only fills an empty slot. If the token was deleted while the lookup
+     * was running, the entry deleteAuth left behind wins over the stale result.
+     */
+    private synchronized void remember(String authToken, Entry entry) {
+        if (authToken != null) {
+            cache.putIfAbsent(authToken, entry);
+        }
+    }
+
+    @Override
+    public void deleteAuth(String authToken) throws ResponseException {
+        backing.deleteAuth(authToken);
+        synchronized (this) {
+            cache.put(authToken, new Entry(null, System.nanoTime() + negativeTtlNanos));
+        }
+    }
+
+    @Override
+    public void clear() throws ResponseException {
+        backing.clear();
+        synchronized (this) {
+            cache.clear();
+        }
+    }
+}
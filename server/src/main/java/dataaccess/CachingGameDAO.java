@@ -0,0 +1,397 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.GameCodec;
+import exception.ResponseException;
+import model.GameData;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A GameDAO that keeps active games in memory in front of another GameDAO.
+ * <p>
+ * Reads are served from the cache and fall through to the backing DAO on a miss.
+ * Moves and the snapshots taken after them update the cache right away and reach
+ * the backing DAO according to the {@link Durability} policy; any other update,
+ * such as a join, leave or resignation, is saved before it returns. Writes that are
+ * still waiting are coalesced: only the newest snapshot of a game is saved, and
+ * logged moves the snapshot already covers are dropped. Games leave the cache when
+ * it is full (least recently used first), when they have not been touched for the
+ * idle timeout, or once a finished game has been saved, but never while they have
+ * unsaved writes or a command has them pinned.
+ */
+public class CachingGameDAO implements GameDAO {
+
+    /**
+     * When moves reach the backing DAO
+     */
+    public enum Durability {
+        /** Every write is saved before the call returns */
+        WRITE_THROUGH,
+        /** Moves are saved in the background, but the write that ends a game is saved before returning */
+        SYNC_ON_GAME_END,
+        /** Every write is saved in the background */
+        WRITE_BEHIND
+    }
+
+    private final GameDAO backing;
+    private final Durability durability;
+    private final int maxGames;
+    private final long idleTimeoutNanos;
+
+    // Access ordered, so iteration starts at the least recently used game
+    private final LinkedHashMap<Integer, CachedGame> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Integer, PendingWrites> pending = new HashMap<>();
+    // How many running commands hold each game; a held game is never evicted
+    private final Map<Integer, Integer> pins = new HashMap<>();
+    // Held while writing or loading one game so two flushes of it never race, without blocking other games
+    private final ConcurrentHashMap<Integer, Object> gameLocks = new ConcurrentHashMap<>();
+    // Flushes and loads share it; clear takes it alone so nothing is written back after the wipe
+    private final ReadWriteLock clearLock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService flusher;
+
+    public CachingGameDAO(GameDAO backing, Durability durability, int maxGames, long idleTimeoutMillis,
+                          long flushIntervalMillis) {
+        this.backing = backing;
+        this.durability = durability;
+        this.maxGames = maxGames;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-cache-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushInBackground, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    private static final class CachedGame {
+        private final GameData game;
+        private long lastAccess;
+
+        CachedGame(GameData game) {
+            this.game = game;
+            this.lastAccess = System.nanoTime();
+        }
+    }
+
+    /*
+     * What still has to be written for one game. The snapshot is a copy taken when
+     * it was queued, so later moves on the live game cannot change it mid-write.
+     */
+    private static final class PendingWrites {
+        private GameData snapshot;
+        private final TreeMap<Integer, Integer> moves = new TreeMap<>();
+    }
+
+    @Override
+    public HashSet<GameData> listGames() throws ResponseException {
+        HashSet<GameData> games = new HashSet<>();
+        Map<Integer, GameData> cached = new HashMap<>();
+        synchronized (this) {
+            for (var entry : cache.entrySet()) {
+                cached.put(entry.getKey(), entry.getValue().game);
+            }
+        }
+
+        for (GameData game : backing.listGames()) {
+            games.add(cached.getOrDefault(game.gameID(), game));
+        }
+        return games;
+    }
+
+    /**
+     * Games are created straight in the backing DAO so a clashing gameID is reported to the caller
+     */
+    @Override
+    public void createGame(GameData game) throws DataAccessException, ResponseException {
+        backing.createGame(game);
+        cachePut(game);
+    }
+
+    @Override
+    public GameData getGame(int gameId) throws DataAccessException, ResponseException {
+        GameData cached = cached(gameId);
+        if (cached != null) {
+            return cached;
+        }
+
+        clearLock.readLock().lock();
+        try {
+            // One load per game at a time, so a second miss finds the first one's copy instead of loading its own
+            synchronized (lockFor(gameId)) {
+                cached = cached(gameId);
+                if (cached != null) {
+                    return cached;
+                }
+                // The game may have been evicted with writes still queued; save them before reading it back
+                flush(gameId);
+                return cacheIfAbsent(backing.getGame(gameId));
+            }
+        } finally {
+            clearLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean gameExists(int gameId) throws ResponseException, DataAccessException {
+        synchronized (this) {
+            if (cache.containsKey(gameId)) {
+                return true;
+            }
+        }
+        return backing.gameExists(gameId);
+    }
+
+    /**
+     * Saved before returning under every policy, so seats and resignations survive a crash
+     */
+    @Override
+    public void updateGame(GameData game) throws DataAccessException, ResponseException {
+        queueSnapshot(game);
+        flush(game.gameID());
+        evictIfFinished(game);
+    }
+
+    @Override
+    public void updateGameAfterMove(GameData game) throws DataAccessException, ResponseException {
+        boolean finished = queueSnapshot(game);
+        if (durability == Durability.WRITE_THROUGH || (finished && durability == Durability.SYNC_ON_GAME_END)) {
+            flush(game.gameID());
+        }
+        evictIfFinished(game);
+    }
+
+    @Override
+    public void appendMove(int gameID, int ply, int encodedMove) throws DataAccessException, ResponseException {
+        synchronized (this) {
+            pendingFor(gameID).moves.put(ply, encodedMove);
+        }
+        if (durability == Durability.WRITE_THROUGH) {
+            flush(gameID);
+        }
+    }
+
+    @Override
+    public synchronized void pin(int gameID) {
+        pins.merge(gameID, 1, Integer::sum);
+    }
+
+    /**
+     * Releases a pin; a finished game that has been saved leaves the cache once nothing holds it
+     */
+    @Override
+    public synchronized void unpin(int gameID) {
+        if (pins.merge(gameID, -1, Integer::sum) <= 0) {
+            pins.remove(gameID);
+            CachedGame cached = cache.get(gameID);
+            if (cached != null && cached.game.game() != null && cached.game.game().checkGameStatus()) {
+                evictWhenSaved(gameID);
+            }
+        }
+    }
+
+    @Override
+    public void clear() throws ResponseException {
+        clearLock.writeLock().lock();
+        try {
+            synchronized (this) {
+                cache.clear();
+                pending.clear();
+                pins.clear();
+            }
+            gameLocks.clear();
+            backing.clear();
+        } finally {
+            clearLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Saves every queued write to the backing DAO
+     */
+    public void flush() throws DataAccessException, ResponseException {
+        Integer[] gameIDs;
+        synchronized (this) {
+            gameIDs = pending.keySet().toArray(new Integer[0]);
+        }
+        for (int gameID : gameIDs) {
+            flush(gameID);
+        }
+    }
+
+    /**
+     * Stops the background flusher and saves whatever is still queued
+     */
+    public void close() throws DataAccessException, ResponseException {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * Saves the queued writes for one game: its newest snapshot, then any moves
+     * played after that snapshot
+     */
+    private void flush(int gameID) throws DataAccessException, ResponseException {
+        clearLock.readLock().lock();
+        try {
+            synchronized (lockFor(gameID)) {
+                PendingWrites writes;
+                synchronized (this) {
+                    writes = pending.remove(gameID);
+                }
+                if (writes == null) {
+                    return;
+                }
+
+                try {
+                    int savedPly = 0;
+                    if (writes.snapshot != null) {
+                        backing.updateGame(writes.snapshot);
+                        savedPly = writes.snapshot.game() == null ? 0 : writes.snapshot.game().getPly();
+                        writes.snapshot = null;
+                    }
+                    var moves = writes.moves.tailMap(savedPly, false).entrySet().iterator();
+                    while (moves.hasNext()) {
+                        var move = moves.next();
+                        backing.appendMove(gameID, move.getKey(), move.getValue());
+                        moves.remove();
+                    }
+                } catch (DataAccessException | ResponseException | RuntimeException e) {
+                    requeue(gameID, writes);
+                    throw e;
+                }
+            }
+        } finally {
+            clearLock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Puts writes that failed back in front of anything queued since, so they are
+     * retried on the next flush without overwriting newer state
+     */
+    private synchronized void requeue(int gameID, PendingWrites failed) {
+        PendingWrites newer = pending.get(gameID);
+        if (newer == null) {
+            pending.put(gameID, failed);
+            return;
+        }
+        if (newer.snapshot == null) {
+            newer.snapshot = failed.snapshot;
+        }
+        failed.moves.forEach(newer.moves::putIfAbsent);
+    }
+
+    private void flushInBackground() {
+        try {
+            flush();
+        } catch (DataAccessException | ResponseException | RuntimeException e) {
+            System.err.println("Unable to save cached games, will retry: " + e.getMessage());
+        }
+        evictIdle();
+    }
+
+    private synchronized void evictIdle() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Integer, CachedGame>> entries = cache.entrySet().iterator();
+        while (entries.hasNext()) {
+            var entry = entries.next();
+            if (now - entry.getValue().lastAccess > idleTimeoutNanos && evictable(entry.getKey())) {
+                entries.remove();
+            }
+        }
+    }
+
+    private synchronized void evictWhenSaved(int gameID) {
+        if (evictable(gameID)) {
+            cache.remove(gameID);
+        }
+    }
+
+    /*
+     * Dropping a game with unsaved writes, or one a command still holds, would let the
+     * next getGame load a second copy whose moves diverge from the first
+     */
+    private boolean evictable(int gameID) {
+        return !pending.containsKey(gameID) && !pins.containsKey(gameID);
+    }
+
+    private boolean queueSnapshot(GameData game) {
+        synchronized (this) {
+            pendingFor(game.gameID()).snapshot = copyOf(game);
+        }
+        cachePut(game);
+        return game.game() != null && game.game().checkGameStatus();
+    }
+
+    private void evictIfFinished(GameData game) {
+        if (game.game() != null && game.game().checkGameStatus()) {
+            evictWhenSaved(game.gameID());
+        }
+    }
+
+    private synchronized void cachePut(GameData game) {
+        cache.put(game.gameID(), new CachedGame(game));
+        // Games with unsaved writes or a command holding them are skipped, so the cache can briefly run over maxGames
+        Iterator<Integer> oldest = cache.keySet().iterator();
+        while (cache.size() > maxGames && oldest.hasNext()) {
+            int gameID = oldest.next();
+            if (gameID != game.gameID() && evictable(gameID)) {
+                oldest.remove();
+            }
+        }
+    }
+
+    /*
+     * Keeps a game another caller already cached rather than replacing it with a
+     * fresh load, since moves that are not snapshots only live in the cached object
+     */
+    private synchronized GameData cacheIfAbsent(GameData game) {
+        GameData cached = cached(game.gameID());
+        if (cached != null) {
+            return cached;
+        }
+        cachePut(game);
+        return game;
+    }
+
+    private synchronized GameData cached(int gameID) {
+        CachedGame cached = cache.get(gameID);
+        if (cached == null) {
+            return null;
+        }
+        cached.lastAccess = System.nanoTime();
+        return cached.game;
+    }
+
+    private Object lockFor(int gameID) {
+        return gameLocks.computeIfAbsent(gameID, id -> new Object());
+    }
+
+    private PendingWrites pendingFor(int gameID) {
+        return pending.computeIfAbsent(gameID, id -> new PendingWrites());
+    }
+
+    private static GameData copyOf(GameData game) {
+        ChessGame copy = game.game() == null ? null : GameCodec.decode(GameCodec.encode(game.game()));
+        return new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), copy);
+    }
+}
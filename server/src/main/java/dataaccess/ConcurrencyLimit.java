@@ -0,0 +1,61 @@
+package dataaccess;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps how many callers can be doing one kind of work at once. Callers past the
+ * cap wait their turn in arrival order, and give up once they have waited for the
+ * timeout.
+ * <p>
+ * With virtual threads there is no thread pool left to put a ceiling on how much
+ * database or CPU heavy work runs at the same time, so these limits do it instead.
+ */
+public class ConcurrencyLimit {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final Semaphore permits;
+    private final long timeoutMillis;
+
+    public ConcurrencyLimit(String name, int maxConcurrent, long timeoutMillis) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException(name + " needs at least one permit");
+        }
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Waits for a permit, which must be handed back with {@link #release()}
+     *
+     * @throws DataAccessException if no permit came free within the timeout
+     */
+    public void acquire() throws DataAccessException {
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new DataAccessException(name + " is busy, try again");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted while waiting for " + name);
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int maxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * @return how many more callers could start right now without waiting
+     */
+    public int available() {
+        return permits.availablePermits();
+    }
+}
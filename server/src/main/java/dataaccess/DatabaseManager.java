@@ -1,13 +1,24 @@
 package dataaccess;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.sql.*;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class DatabaseManager {
     private static final String DATABASE_NAME;
     private static final String USER;
     private static final String PASSWORD;
     private static final String CONNECTION_URL;
+    private static final Properties PROPERTIES;
+
+    private static volatile HikariDataSource dataSource;
+    private static volatile ConcurrencyLimit connectionLimit;
 
     /*
      * Load the database information for the db.properties file.
@@ -27,6 +38,7 @@ public class DatabaseManager {
                 var host = props.getProperty("db.host");
                 var port = Integer.parseInt(props.getProperty("db.port"));
                 CONNECTION_URL = String.format("jdbc:mysql://%s:%d", host, port);
+                PROPERTIES = props;
             }
         } catch (Exception ex) {
             throw new RuntimeException("unable to process db.properties. " + ex.getMessage());
@@ -37,36 +49,140 @@ public class DatabaseManager {
      * Creates the database if it does not already exist.
      */
     static void createDatabase() throws DataAccessException {
-        try {
-            var statement = "CREATE DATABASE IF NOT EXISTS " + DATABASE_NAME;
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
-            try (var preparedStatement = conn.prepareStatement(statement)) {
-                preparedStatement.executeUpdate();
-            }
+        var statement = "CREATE DATABASE IF NOT EXISTS " + DATABASE_NAME;
+        try (var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
+             var preparedStatement = conn.prepareStatement(statement)) {
+            preparedStatement.executeUpdate();
         } catch (SQLException e) {
             throw new DataAccessException(e.getMessage());
         }
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
-     * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
-     * The easiest way to do that is with a try-with-resource block.
+     * Borrows a connection to the database from the connection pool. The catalog is
+     * set from db.properties. Connections to the database should be short-lived, and
+     * you must close the connection when you are done with it, which hands it back
+     * to the pool. The easiest way to do that is with a try-with-resource block.
+     * Do not borrow a second connection while holding one; under load every permit
+     * can be held by a caller waiting on its second, and none of them get it.
      * <br/>
      * <code>
-     * try (var conn = DbInfo.getConnection(databaseName)) {
+     * try (var conn = DatabaseManager.getConnection()) {
      * // execute SQL statements.
      * }
      * </code>
      */
     static Connection getConnection() throws DataAccessException {
+        var limit = connectionLimit();
+        limit.acquire();
         try {
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
-            conn.setCatalog(DATABASE_NAME);
-            return conn;
-        } catch (SQLException e) {
+            return withPermit(dataSource().getConnection(), limit);
+        } catch (SQLException | RuntimeException e) {
+            limit.release();
             throw new DataAccessException(e.getMessage());
         }
     }
+
+    /**
+     * Wraps a pooled connection so closing it also hands back its permit. Every
+     * other call goes straight to the pooled connection.
+     */
+    static Connection withPermit(Connection connection, ConcurrencyLimit limit) {
+        // Closing twice must not release the permit twice
+        var released = new AtomicBoolean();
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getName().equals("close") && method.getParameterCount() == 0) {
+                if (released.compareAndSet(false, true)) {
+                    try {
+                        connection.close();
+                    } finally {
+                        limit.release();
+                    }
+                }
+                return null;
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, handler);
+    }
+
+    /*
+     * The db.maxConcurrent key caps how many connections are in use at once, and
+     * defaults to the pool size. MySQL Connector/J 8 blocks on the socket inside
+     * synchronized blocks, which pins a virtual thread to its carrier, so with
+     * chess.threads=virtual the default is also no more than there are carriers,
+     * and database calls can never pin every carrier and stall the server.
+     */
+    private static ConcurrencyLimit connectionLimit() {
+        var limit = connectionLimit;
+        if (limit == null) {
+            synchronized (DatabaseManager.class) {
+                limit = connectionLimit;
+                if (limit == null) {
+                    int defaultMax = intProperty("db.pool.maxSize", 10);
+                    if ("virtual".equalsIgnoreCase(System.getProperty("chess.threads", "platform"))) {
+                        defaultMax = Math.min(defaultMax, Runtime.getRuntime().availableProcessors());
+                    }
+                    limit = new ConcurrencyLimit("The database", intProperty("db.maxConcurrent", defaultMax),
+                            intProperty("db.pool.connectionTimeoutMs", 5_000));
+                    connectionLimit = limit;
+                }
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * The pool is created on first use rather than when the class loads, since the
+     * database it connects to only exists once createDatabase has run.
+     */
+    private static HikariDataSource dataSource() {
+        var pool = dataSource;
+        if (pool == null) {
+            synchronized (DatabaseManager.class) {
+                pool = dataSource;
+                if (pool == null) {
+                    pool = new HikariDataSource(poolConfig());
+                    dataSource = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /*
+     * Pool settings come from the optional db.pool.* keys in db.properties.
+     */
+    private static HikariConfig poolConfig() {
+        var config = new HikariConfig();
+        config.setPoolName("chess-db");
+        config.setJdbcUrl(CONNECTION_URL + "/" + DATABASE_NAME);
+        config.setUsername(USER);
+        config.setPassword(PASSWORD);
+
+        config.setMaximumPoolSize(intProperty("db.pool.maxSize", 10));
+        config.setMinimumIdle(intProperty("db.pool.minIdle", 2));
+        config.setConnectionTimeout(intProperty("db.pool.connectionTimeoutMs", 5_000));
+        config.setValidationTimeout(intProperty("db.pool.validationTimeoutMs", 1_000));
+        config.setIdleTimeout(intProperty("db.pool.idleTimeoutMs", 300_000));
+        // Kept below MySQL's default wait_timeout so the server never drops a pooled connection first
+        config.setMaxLifetime(intProperty("db.pool.maxLifetimeMs", 1_800_000));
+        config.setLeakDetectionThreshold(intProperty("db.pool.leakDetectionMs", 10_000));
+
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        config.addDataSourceProperty("useServerPrepStmts", "true");
+        return config;
+    }
+
+    private static int intProperty(String key, int defaultValue) {
+        var value = PROPERTIES.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
 }
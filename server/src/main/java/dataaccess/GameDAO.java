@@ -12,5 +12,35 @@ public interface GameDAO {
     GameData getGame(int gameId) throws DataAccessException, ResponseException;
     boolean gameExists(int gameId) throws ResponseException, DataAccessException;
     void updateGame(GameData game) throws DataAccessException, ResponseException;
+
+    /**
+     * Saves a snapshot taken after a move. A DAO that buffers writes may save it
+     * later; joins, leaves and resignations go through updateGame instead, which is
+     * always saved before it returns.
+     */
+    default void updateGameAfterMove(GameData game) throws DataAccessException, ResponseException {
+        updateGame(game);
+    }
+
+    /**
+     * Records one move of a game without rewriting the whole game. The stored game
+     * is the last snapshot saved with updateGame plus every move appended after it.
+     *
+     * @param ply          the move's position in the game, starting at 1
+     * @param encodedMove  the move as a {@link chess.PackedMove}
+     */
+    void appendMove(int gameID, int ply, int encodedMove) throws DataAccessException, ResponseException;
+
+    /**
+     * Marks a game as in use by a running command, so a DAO that caches games keeps
+     * the instance the command holds instead of loading a second copy. Every pin
+     * must be matched by an unpin.
+     */
+    default void pin(int gameID) {
+    }
+
+    default void unpin(int gameID) {
+    }
+
     void clear() throws ResponseException;
 }
@@ -3,44 +3,55 @@ package dataaccess;
 import model.AuthData;
 
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MemoryAuthDAO implements AuthDAO{
 
-    private HashSet<AuthData> db;
+    private final Map<String, AuthData> db = new ConcurrentHashMap<>();
+    // The tokens each username is logged in with
+    private final Map<String, Set<String>> tokensByUser = new ConcurrentHashMap<>();
 
     public MemoryAuthDAO(){
-        db = HashSet.newHashSet(10);
     }
 
     @Override
     public void createAuth(AuthData authData) {
-        db.add(authData);
+        db.put(authData.authToken(), authData);
+        tokensByUser.computeIfAbsent(authData.username(), u -> ConcurrentHashMap.newKeySet()).add(authData.authToken());
     }
 
     @Override
     public AuthData getAuth(String authToken) throws DataAccessException {
-        for(AuthData authData : db){
-            if(authData.authToken().equals(authToken)){
-                return authData;
-            }
+        AuthData authData = authToken == null ? null : db.get(authToken);
+        if(authData == null){
+            throw new DataAccessException("Auth Token doesn't exist");
         }
+        return authData;
+    }
 
-        throw new DataAccessException("Auth Token doesn't exist");
+    /**
+     * @return a copy of the tokens the given user is logged in with
+     */
+    public Set<String> getTokens(String username) {
+        return new HashSet<>(tokensByUser.getOrDefault(username, Set.of()));
     }
 
     @Override
     public void deleteAuth(String authToken) {
-        for(AuthData authData : db){
-            if(authData.authToken().equals(authToken)){
-                db.remove(authData);
-                break;
-            }
+        AuthData authData = authToken == null ? null : db.remove(authToken);
+        if(authData != null){
+            tokensByUser.computeIfPresent(authData.username(), (u, tokens) -> {
+                tokens.remove(authToken);
+                return tokens.isEmpty() ? null : tokens;
+            });
         }
-
     }
 
     @Override
     public void clear() {
-        db = HashSet.newHashSet(10);
+        db.clear();
+        tokensByUser.clear();
     }
 }
@@ -3,60 +3,112 @@ package dataaccess;
 import model.GameData;
 
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MemoryGameDAO implements GameDAO{
 
-    private HashSet<GameData> db;
+    private final Map<Integer, GameData> db = new ConcurrentHashMap<>();
+    // gameIDs of the games each username plays in, as white or black; only changed inside db.compute for that game
+    private final Map<String, Set<Integer>> gamesByPlayer = new ConcurrentHashMap<>();
 
     public MemoryGameDAO(){
-        db = HashSet.newHashSet(10);
     }
 
+    /**
+     * @return a copy of the stored games, which later changes do not affect
+     */
     @Override
     public HashSet<GameData> listGames() {
-        return db;
+        return new HashSet<>(db.values());
     }
 
-    @Override
-    public void createGame(GameData game){
-        db.add(game);
+    /**
+     * @return the games the given user plays in
+     */
+    public HashSet<GameData> listGames(String username) {
+        HashSet<GameData> games = new HashSet<>();
+        for(int gameID : gamesByPlayer.getOrDefault(username, Set.of())){
+            GameData game = db.get(gameID);
+            // The index can be a step behind a concurrent update, so the game itself has the final say
+            if(game != null && (username.equals(game.whiteUsername()) || username.equals(game.blackUsername()))){
+                games.add(game);
+            }
+        }
+        return games;
     }
 
     @Override
-    public GameData getGame(int gameId) throws DataAccessException {
-        for(GameData game : db){
-            if(game.gameID() == gameId){
-                return game;
+    public void createGame(GameData game) throws DataAccessException {
+        GameData[] existing = new GameData[1];
+        db.compute(game.gameID(), (id, stored) -> {
+            existing[0] = stored;
+            if(stored != null){
+                return stored;
             }
+            indexPlayers(game);
+            return game;
+        });
+        if(existing[0] != null && !existing[0].equals(game)){
+            throw new DataAccessException("Game already exists: " + game.gameName());
         }
+    }
 
-        throw new DataAccessException("Game does not exist");
+    @Override
+    public GameData getGame(int gameId) throws DataAccessException {
+        GameData game = db.get(gameId);
+        if(game == null){
+            throw new DataAccessException("Game does not exist");
+        }
+        return game;
     }
 
     @Override
     public boolean gameExists(int gameId) {
-
-        for(GameData game : db){
-            if(game.gameID() == gameId){
-                return true;
-            }
-        }
-        return false;
+        return db.containsKey(gameId);
     }
 
     @Override
     public void updateGame(GameData game) throws DataAccessException {
-        try{
-            db.remove(getGame(game.gameID()));
-            db.add(game);
-        } catch (DataAccessException e) {
-            db.add(game);
-        }
+        // Updates to one game are serialized by compute, so the index moves with the game in one step
+        db.compute(game.gameID(), (id, previous) -> {
+            if(previous != null){
+                unindexPlayers(previous);
+            }
+            indexPlayers(game);
+            return game;
+        });
+    }
 
+    @Override
+    public void appendMove(int gameID, int ply, int encodedMove) throws DataAccessException {
+        // getGame hands out the stored game itself, so the move is already on it
+        getGame(gameID);
     }
 
     @Override
     public void clear() {
-        db = HashSet.newHashSet(10);
+        db.clear();
+        gamesByPlayer.clear();
+    }
+
+    private void indexPlayers(GameData game) {
+        for(String player : new String[]{game.whiteUsername(), game.blackUsername()}){
+            if(player != null){
+                gamesByPlayer.computeIfAbsent(player, p -> ConcurrentHashMap.newKeySet()).add(game.gameID());
+            }
+        }
+    }
+
+    private void unindexPlayers(GameData game) {
+        for(String player : new String[]{game.whiteUsername(), game.blackUsername()}){
+            if(player != null){
+                gamesByPlayer.computeIfPresent(player, (p, games) -> {
+                    games.remove(game.gameID());
+                    return games.isEmpty() ? null : games;
+                });
+            }
+        }
     }
 }
@@ -1,66 +1,44 @@
 package dataaccess;
-import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import model.UserData;
 
 public class MemoryUserDAO implements UserDAO {
 
-    private HashSet<UserData> db;
+    private final Map<String, UserData> db = new ConcurrentHashMap<>();
 
     public MemoryUserDAO(){
-        db = HashSet.newHashSet(10);
     }
 
 
     @Override
     public void createUser(UserData user) throws DataAccessException {
-        try{
-            getUser(user.username());
-        } catch (DataAccessException e) {
-            db.add(user);
-            return;
+        if(db.putIfAbsent(user.username(), user) != null){
+            throw  new DataAccessException("User already exists");
         }
-
-        throw  new DataAccessException("User already exists");
     }
 
     @Override
    public UserData getUser(String username) throws DataAccessException{
-        for(UserData user : db){
-            if(user.username().equals(username)){
-                return user;
-            }
+        UserData user = username == null ? null : db.get(username);
+        if(user == null){
+            throw new DataAccessException("User not found: " + username);
         }
-
-        throw new DataAccessException("User not found: " + username);
+        return user;
     }
 
     @Override
     public boolean checkUser(String username, String password) throws DataAccessException {
-        boolean existingUser = false;
-
-        for(UserData userData : db){
-            if(userData.username().equals(username)){
-                existingUser = true;
-            }
-
-            if(userData.username().equals(username) && userData.password().equals(password)){
-                return true;
-            }
-
-            if(existingUser){
-                return false;
-            }else{
-                throw new DataAccessException("User does not exist");
-            }
+        UserData user = username == null ? null : db.get(username);
+        if(user == null){
+            throw new DataAccessException("User does not exist");
         }
-
-
-        return false;
+        return user.password().equals(password);
     }
 
     @Override
     public void clear() {
-        db = HashSet.newHashSet(10);
-
+        db.clear();
     }
 }
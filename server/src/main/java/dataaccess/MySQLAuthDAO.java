@@ -4,11 +4,22 @@ import exception.ResponseException;
 import model.AuthData;
 
 import java.sql.*;
+import java.time.Duration;
 
 import static java.sql.Statement.RETURN_GENERATED_KEYS;
 
 public class MySQLAuthDAO implements AuthDAO{
+    public static final Duration DEFAULT_TOKEN_LIFETIME = Duration.ofHours(24);
+
+    // How long a token stays valid after it is created
+    private final long tokenLifetimeSeconds;
+
     public MySQLAuthDAO() throws ResponseException, DataAccessException {
+        this(DEFAULT_TOKEN_LIFETIME);
+    }
+
+    public MySQLAuthDAO(Duration tokenLifetime) throws ResponseException, DataAccessException {
+        tokenLifetimeSeconds = tokenLifetime.toSeconds();
         configureDatabase2();
     }
 
@@ -17,8 +28,10 @@ public class MySQLAuthDAO implements AuthDAO{
             CREATE TABLE IF NOT EXISTS  Auth (
               `authToken` varchar(256) NOT NULL,
               `username` varchar(256) NOT NULL,
+              `expiresAt` DATETIME NOT NULL,
               INDEX(authToken),
-              INDEX(username)
+              INDEX(username),
+              INDEX(expiresAt)
             )
             """
     };
@@ -31,11 +44,40 @@ public class MySQLAuthDAO implements AuthDAO{
                     preparedStatement2.executeUpdate();
                 }
             }
+            migrateExpiry(conn2);
         } catch (SQLException ex) {
             throw new ResponseException(500, String.format("Unable to configure database: %s", ex.getMessage()));
         }
     }
 
+    /**
+     * Tables from before tokens expired have no expiresAt column. Tokens already in
+     * them get a full lifetime from now rather than being logged out, and then the
+     * column is made NOT NULL to match a freshly created table.
+     */
+    private void migrateExpiry(Connection conn) throws SQLException {
+        var statement = "SELECT COUNT(*) FROM information_schema.COLUMNS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'Auth' AND COLUMN_NAME = 'expiresAt'";
+        try (var ps = conn.prepareStatement(statement);
+             var rs = ps.executeQuery()) {
+            if (rs.next() && rs.getInt(1) > 0) {
+                return;
+            }
+        }
+
+        try (var alter = conn.prepareStatement("ALTER TABLE Auth ADD COLUMN `expiresAt` DATETIME NULL, ADD INDEX(expiresAt)")) {
+            alter.executeUpdate();
+        }
+        try (var update = conn.prepareStatement(
+                "UPDATE Auth SET expiresAt = DATE_ADD(NOW(), INTERVAL ? SECOND) WHERE expiresAt IS NULL")) {
+            update.setLong(1, tokenLifetimeSeconds);
+            update.executeUpdate();
+        }
+        try (var notNull = conn.prepareStatement("ALTER TABLE Auth MODIFY `expiresAt` DATETIME NOT NULL")) {
+            notNull.executeUpdate();
+        }
+    }
+
     private void executeUpdate2(String statement, Object... params) throws ResponseException {
         try (var conn2 = DatabaseManager.getConnection()) {
             try (var ps2 = conn2.prepareStatement(statement, RETURN_GENERATED_KEYS)) {
@@ -43,6 +85,7 @@ public class MySQLAuthDAO implements AuthDAO{
                     var param2 = params[i];
                     switch (param2) {
                         case String p -> ps2.setString(i + 1, p);
+                        case Long p -> ps2.setLong(i + 1, p);
                         case AuthData p -> ps2.setString(i + 1, p.toString());
                         default -> throw new IllegalStateException("Unexpected value: " + param2);
                     }
@@ -66,15 +109,17 @@ public class MySQLAuthDAO implements AuthDAO{
         if (authData == null || authData.authToken() == null || authData.username() == null) {
             throw new ResponseException(400, "authToken and username cannot be null.");
         }
-        var statement = "INSERT INTO Auth (authToken, username) VALUES (?, ?)";
-        executeUpdate2(statement, authData.authToken(), authData.username());
+        // Logins are rare next to lookups, so expired tokens are swept out here
+        executeUpdate2("DELETE FROM Auth WHERE expiresAt <= NOW()");
+        var statement = "INSERT INTO Auth (authToken, username, expiresAt) VALUES (?, ?, DATE_ADD(NOW(), INTERVAL ? SECOND))";
+        executeUpdate2(statement, authData.authToken(), authData.username(), tokenLifetimeSeconds);
 
     }
 
     @Override
     public AuthData getAuth(String authToken) throws DataAccessException, ResponseException {
         try (var conn = DatabaseManager.getConnection()) {
-            var statement = "SELECT authToken, username FROM Auth WHERE authToken=?";
+            var statement = "SELECT authToken, username FROM Auth WHERE authToken=? AND expiresAt > NOW()";
             try (var ps = conn.prepareStatement(statement)) {
                 ps.setString(1, authToken);
                 try (var rs = ps.executeQuery()) {
@@ -1,11 +1,15 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.GameCodec;
+import chess.InvalidMoveException;
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import exception.ResponseException;
 import model.GameData;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.HashSet;
@@ -26,10 +30,18 @@ public class MySQLGameDAO implements GameDAO{
               `whiteUsername` varchar(256),
               `blackUsername` varchar(256),
               `gameName` varchar(256) NOT NULL,
-              `game` TEXT DEFAULT NULL,
-              INDEX(gameID),
+              `game` BLOB DEFAULT NULL,
+              PRIMARY KEY (gameID),
               INDEX(gameName)
             )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS GameMove (
+              `gameID` int NOT NULL,
+              `ply` int NOT NULL,
+              `move` int NOT NULL,
+              PRIMARY KEY (gameID, ply)
+            )
             """
     };
 
@@ -41,11 +53,49 @@ public class MySQLGameDAO implements GameDAO{
                     preparedStatement3.executeUpdate();
                 }
             }
+            migrateGameColumn(conn3);
+            migratePrimaryKey(conn3);
         } catch (SQLException ex) {
             throw new ResponseException(500, String.format("Unable to configure database: %s", ex.getMessage()));
         }
     }
 
+    /**
+     * Tables created before games were stored with GameCodec keep them as JSON in
+     * a TEXT column. Switching the column to BLOB keeps those rows readable, since
+     * readGame falls back to JSON for anything without the codec header.
+     */
+    private void migrateGameColumn(Connection conn) throws SQLException {
+        var statement = "SELECT DATA_TYPE FROM information_schema.COLUMNS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'Game' AND COLUMN_NAME = 'game'";
+        try (var ps = conn.prepareStatement(statement);
+             var rs = ps.executeQuery()) {
+            if (rs.next() && rs.getString(1).equalsIgnoreCase("text")) {
+                try (var alter = conn.prepareStatement("ALTER TABLE Game MODIFY `game` BLOB DEFAULT NULL")) {
+                    alter.executeUpdate();
+                }
+            }
+        }
+    }
+
+    /**
+     * Tables created before gameID was the primary key only have a plain index on it,
+     * which updateGame's upsert cannot key on. Adding the key fails if the table
+     * already holds two rows for one game, which has to be cleaned up by hand.
+     */
+    private void migratePrimaryKey(Connection conn) throws SQLException {
+        var statement = "SELECT COUNT(*) FROM information_schema.TABLE_CONSTRAINTS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'Game' AND CONSTRAINT_TYPE = 'PRIMARY KEY'";
+        try (var ps = conn.prepareStatement(statement);
+             var rs = ps.executeQuery()) {
+            if (rs.next() && rs.getInt(1) == 0) {
+                try (var alter = conn.prepareStatement("ALTER TABLE Game ADD PRIMARY KEY (gameID)")) {
+                    alter.executeUpdate();
+                }
+            }
+        }
+    }
+
     private void executeUpdate(String statement, Object... params) throws ResponseException {
         try (var conn = DatabaseManager.getConnection()) {
             try (var ps2 = conn.prepareStatement(statement, RETURN_GENERATED_KEYS)) {
@@ -54,6 +104,7 @@ public class MySQLGameDAO implements GameDAO{
                     switch (param) {
                         case String p -> ps2.setString(i + 1, p);
                         case Integer p -> ps2.setInt(i + 1, p);
+                        case byte[] p -> ps2.setBytes(i + 1, p);
                         case JsonElement p -> ps2.setString(i + 1, p.toString());
                         case null -> ps2.setNull(i + 1, NULL);
                         default -> throw new IllegalStateException("Unexpected value: " + param);
@@ -73,13 +124,27 @@ public class MySQLGameDAO implements GameDAO{
         }
     }
 
-    private GameData readGame(ResultSet rs) throws SQLException {
+    /**
+     * @param replayMoves whether to bring the snapshot up to date from the move log, which costs a query and a replay
+     */
+    private GameData readGame(Connection conn, ResultSet rs, boolean replayMoves) throws SQLException, ResponseException {
         var gameID = rs.getInt("gameID");
         var whiteUserName = rs.getString("whiteUsername");
         var blackUserName = rs.getString("blackUsername");
         var gameName = rs.getString("gameName");
-        var json = rs.getString("game");
-        var game = new Gson().fromJson(json, ChessGame.class);
+        var data = rs.getBytes("game");
+
+        ChessGame game;
+        if (data == null) {
+            game = null;
+        } else if (GameCodec.isEncoded(data)) {
+            game = GameCodec.decode(data);
+        } else {
+            game = new Gson().fromJson(new String(data, StandardCharsets.UTF_8), ChessGame.class);
+        }
+        if (game != null && replayMoves) {
+            replayLoggedMoves(conn, gameID, game);
+        }
 
         return new GameData(gameID, whiteUserName, blackUserName, gameName, game);
     }
@@ -88,11 +153,34 @@ public class MySQLGameDAO implements GameDAO{
 
 
 
+    /**
+     * Brings a snapshot up to date by playing the moves appended after it was saved
+     */
+    private void replayLoggedMoves(Connection conn, int gameID, ChessGame game) throws SQLException, ResponseException {
+        var statement = "SELECT move FROM GameMove WHERE gameID=? AND ply>? ORDER BY ply";
+        try (var ps = conn.prepareStatement(statement)) {
+            ps.setInt(1, gameID);
+            ps.setInt(2, game.getPly());
+            try (var rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    game.replay(rs.getInt("move"));
+                }
+            }
+        } catch (InvalidMoveException e) {
+            throw new ResponseException(500, String.format("Move log for game %d does not replay: %s", gameID, e.getMessage()));
+        }
+    }
+
     public void removeGame(int gameID) throws ResponseException {
         var statement = "DELETE FROM Game WHERE gameID=?";
         executeUpdate(statement, gameID);
     }
 
+    /**
+     * Lists every game with its last saved snapshot. Moves logged since then are not
+     * replayed, since listing only needs the players and names; getGame returns the
+     * current position.
+     */
     @Override
     public HashSet<GameData> listGames() throws ResponseException {
         var result = new HashSet<GameData>();
@@ -102,7 +190,7 @@ public class MySQLGameDAO implements GameDAO{
             try (var ps = conn.prepareStatement(statement);
                  var rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    result.add(readGame(rs));
+                    result.add(readGame(conn, rs, false));
                 }
             }
         } catch (SQLException e) {
@@ -119,13 +207,12 @@ public class MySQLGameDAO implements GameDAO{
     @Override
     public void createGame(GameData game) throws DataAccessException, ResponseException {
 
-        try(var conn = DatabaseManager.getConnection()){
+        // executeUpdate borrows its own connection, so none is held around it
+        try{
             var statement = "INSERT INTO Game (gameID, whiteUsername, blackUsername, gameName, game) VALUES (?, ?, ?, ?, ?)";
-            var json = new Gson().toJson(game.game());
+            var data = game.game() == null ? null : GameCodec.encode(game.game());
 
-            executeUpdate(statement, game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), json);
-        }catch (SQLException e){
-            throw new DataAccessException("Game already exists: " + game.gameName());
+            executeUpdate(statement, game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), data);
         } catch (ResponseException e) {
             throw new RuntimeException(e);
         }
@@ -140,7 +227,7 @@ public class MySQLGameDAO implements GameDAO{
                 ps.setInt(1, gameId);
                 try (var rs = ps.executeQuery()) {
                     if (rs.next()) {
-                        return readGame(rs);
+                        return readGame(conn, rs, true);
                     }
                 }
             }
@@ -161,27 +248,58 @@ public class MySQLGameDAO implements GameDAO{
 
     }
 
+    /**
+     * Writes the game row in place with a single keyed upsert, and drops the logged
+     * moves the new snapshot already holds, both in one transaction so readers never
+     * see the game missing or half written
+     */
     @Override
-    public void updateGame(GameData game) throws DataAccessException{
+    public void updateGame(GameData game) throws ResponseException {
+        var upsert = "INSERT INTO Game (gameID, whiteUsername, blackUsername, gameName, game) VALUES (?, ?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE whiteUsername=VALUES(whiteUsername), blackUsername=VALUES(blackUsername), " +
+                "gameName=VALUES(gameName), game=VALUES(game)";
+        var prune = "DELETE FROM GameMove WHERE gameID=? AND ply<=?";
+        var data = game.game() == null ? null : GameCodec.encode(game.game());
 
-        try{
-            removeGame(game.gameID());
-        } catch (ResponseException e) {
-            throw new RuntimeException(e);
-        }
-
-        try {
-           createGame(game);
-        } catch (ResponseException e) {
-            throw new RuntimeException(e);
+        try (var conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (var ps = conn.prepareStatement(upsert)) {
+                    ps.setInt(1, game.gameID());
+                    ps.setString(2, game.whiteUsername());
+                    ps.setString(3, game.blackUsername());
+                    ps.setString(4, game.gameName());
+                    ps.setBytes(5, data);
+                    ps.executeUpdate();
+                }
+                if (game.game() != null) {
+                    try (var ps = conn.prepareStatement(prune)) {
+                        ps.setInt(1, game.gameID());
+                        ps.setInt(2, game.game().getPly());
+                        ps.executeUpdate();
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException | DataAccessException e) {
+            throw new ResponseException(500, String.format("Unable to update game %d: %s", game.gameID(), e.getMessage()));
         }
+    }
 
+    @Override
+    public void appendMove(int gameID, int ply, int encodedMove) throws ResponseException {
+        var statement = "INSERT INTO GameMove (gameID, ply, move) VALUES (?, ?, ?)";
+        executeUpdate(statement, gameID, ply, encodedMove);
     }
 
     @Override
     public void clear() throws ResponseException {
         var statement = "TRUNCATE TABLE Game";
         executeUpdate(statement);
+        executeUpdate("TRUNCATE TABLE GameMove");
 
     }
 }
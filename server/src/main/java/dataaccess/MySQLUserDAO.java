@@ -12,6 +12,11 @@ import static java.sql.Statement.RETURN_GENERATED_KEYS;
 import static java.sql.Types.NULL;
 
 public class MySQLUserDAO implements UserDAO{
+    // bcrypt is deliberately slow; a burst of logins should queue rather than take every core
+    private static final ConcurrencyLimit HASHING = new ConcurrencyLimit("Password hashing",
+            Integer.getInteger("chess.bcrypt.maxConcurrent", Runtime.getRuntime().availableProcessors()),
+            Long.getLong("chess.bcrypt.timeoutMs", 30_000L));
+
     public MySQLUserDAO() throws ResponseException, DataAccessException{
         configureDatabase();
     }
@@ -76,10 +81,13 @@ public class MySQLUserDAO implements UserDAO{
 
     @Override
     public void createUser(UserData user) throws DataAccessException, ResponseException {
-        try(var conn = DatabaseManager.getConnection()){
+        if (user.password() == null) {
+            throw new DataAccessException("Password is required: " + user.username());
+        }
+        // Hashed before touching the database so no connection is held during the slow part
+        String hashedPassword = hash(user.password());
+        try{
             var statement = "INSERT INTO User (username, password, email) VALUES (?, ?, ?)";
-            String hashedPassword = BCrypt.hashpw(user.password(), BCrypt.gensalt());
-
             executeUpdate(statement, user.username(), hashedPassword, user.email());
         }catch (Exception e){
             throw new DataAccessException("User already exists: " + user.username());
@@ -109,7 +117,29 @@ public class MySQLUserDAO implements UserDAO{
     public boolean checkUser(String username, String password) throws DataAccessException, ResponseException {
         UserData user = getUser(username);
 
-        return BCrypt.checkpw(password, user.password());
+        acquireHashing();
+        try {
+            return BCrypt.checkpw(password, user.password());
+        } finally {
+            HASHING.release();
+        }
+    }
+
+    private static String hash(String password) throws ResponseException {
+        acquireHashing();
+        try {
+            return BCrypt.hashpw(password, BCrypt.gensalt());
+        } finally {
+            HASHING.release();
+        }
+    }
+
+    private static void acquireHashing() throws ResponseException {
+        try {
+            HASHING.acquire();
+        } catch (DataAccessException e) {
+            throw new ResponseException(503, e.getMessage());
+        }
     }
 
     @Override
@@ -4,16 +4,27 @@ import com.google.gson.Gson;
 import dataaccess.*;
 import exception.ResponseException;
 import model.*;
+import server.websocket.GameCommandExecutor;
 import server.websocket.WebSocketHandler;
 import service.AdminService;
 import service.GameService;
 import service.UserService;
 import spark.*;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
 
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.*;
 
 public class Server {
+    /*
+     * With chess.threads=virtual, HTTP requests, WebSocket messages and game commands
+     * all run on virtual threads instead of fixed pools. The database and password
+     * hashing are still capped by the limits in DatabaseManager and MySQLUserDAO.
+     * The property is read when each Server is created.
+     */
+    private final boolean virtualThreads;
 
     UserDAO userDAO;
     AuthDAO authDAO;
@@ -25,18 +36,24 @@ public class Server {
     static WebSocketHandler webSocketHandler;
 
     public Server(){
+        virtualThreads = "virtual".equalsIgnoreCase(System.getProperty("chess.threads", "platform"));
         try {
             userDAO = new MySQLUserDAO();
         } catch (ResponseException | DataAccessException e) {
             throw new RuntimeException(e);
         }
         try {
-            authDAO = new MySQLAuthDAO();
+            var tokenLifetime = Duration.ofMinutes(Long.getLong("chess.auth.tokenLifetimeMinutes",
+                    MySQLAuthDAO.DEFAULT_TOKEN_LIFETIME.toMinutes()));
+            authDAO = new CachingAuthDAO(new MySQLAuthDAO(tokenLifetime),
+                    Integer.getInteger("chess.authCache.maxEntries", 10_000),
+                    Long.getLong("chess.authCache.ttlMs", 30_000L),
+                    Long.getLong("chess.authCache.negativeTtlMs", 5_000L));
         } catch (ResponseException | DataAccessException e) {
             throw new RuntimeException(e);
         }
         try {
-            gameDAO = new MySQLGameDAO();
+            gameDAO = createGameCache(new MySQLGameDAO());
         } catch (ResponseException | DataAccessException e) {
             throw new RuntimeException(e);
         }
@@ -45,11 +62,31 @@ public class Server {
         gameService = new GameService(gameDAO, authDAO, userDAO);
         userService = new UserService(gameDAO, authDAO, userDAO);
 
-        webSocketHandler = new WebSocketHandler(gameDAO, authDAO, userDAO);
+        var commands = virtualThreads ? GameCommandExecutor.withVirtualThreads(64)
+                : GameCommandExecutor.withPlatformThreads(64);
+        webSocketHandler = new WebSocketHandler(gameDAO, authDAO, userDAO, commands);
 
     }
 
+    /*
+     * Active games are served from memory. The chess.gameCache.* system properties
+     * tune the cache; durability is one of CachingGameDAO.Durability.
+     */
+    private static CachingGameDAO createGameCache(GameDAO backing) {
+        var durability = CachingGameDAO.Durability.valueOf(
+                System.getProperty("chess.gameCache.durability", CachingGameDAO.Durability.SYNC_ON_GAME_END.name()));
+        int maxGames = Integer.getInteger("chess.gameCache.maxGames", 1000);
+        long idleTimeoutMillis = Long.getLong("chess.gameCache.idleTimeoutMs", 10 * 60 * 1000L);
+        long flushIntervalMillis = Long.getLong("chess.gameCache.flushIntervalMs", 250L);
+        return new CachingGameDAO(backing, durability, maxGames, idleTimeoutMillis, flushIntervalMillis);
+    }
+
     public int run(int desiredPort) {
+        // Has to be registered before Spark starts its embedded Jetty. The factory is
+        // global, so a platform server also replaces one an earlier server registered.
+        EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY, virtualThreads
+                ? new EmbeddedJettyFactory().withThreadPool(new VirtualThreadPool())
+                : new EmbeddedJettyFactory());
         Spark.port(desiredPort);
 
         Spark.staticFiles.location("web");
@@ -64,6 +101,7 @@ public class Server {
         Spark.get("/game", this::listGames);
         Spark.post("/game", this::createGame);
         Spark.put("/game", this::joinGame);
+        Spark.get("/metrics", this::metrics);
 
 
 
@@ -75,6 +113,15 @@ public class Server {
         return Spark.port();
     }
 
+    // Plain text counters for watching the WebSocket fan-out on a running server
+    private Object metrics(Request request, Response response) {
+        response.status(200);
+        response.type("text/plain");
+        return "Encoding\n" + webSocketHandler.encodeMetrics()
+                + "\nSending\n" + webSocketHandler.sendMetrics()
+                + "queued now " + webSocketHandler.queuedMessages() + "\n";
+    }
+
     private Object joinGame(Request request, Response response) {
         String authToken = request.headers("authorization");
 
@@ -218,5 +265,13 @@ public class Server {
     public void stop() {
         Spark.stop();
         Spark.awaitStop();
+        webSocketHandler.stop();
+        if (gameDAO instanceof CachingGameDAO cache) {
+            try {
+                cache.close();
+            } catch (DataAccessException | ResponseException e) {
+                System.err.println("Unable to save cached games on shutdown: " + e.getMessage());
+            }
+        }
     }
 }
@@ -0,0 +1,84 @@
+package server;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.eclipse.jetty.util.thread.TryExecutor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A Jetty thread pool that starts a new virtual thread for every task.
+ * <p>
+ * Jetty 9 has no virtual thread support of its own, but it runs its selectors,
+ * acceptors and request handling through whatever ThreadPool the server is given.
+ * With this pool a request or WebSocket message that blocks on the database only
+ * parks its own virtual thread, so there is no pool size to tune and a burst of
+ * slow requests cannot starve the rest.
+ */
+public class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool, TryExecutor {
+
+    private final AtomicInteger running = new AtomicInteger();
+    private volatile ExecutorService executor;
+
+    @Override
+    protected void doStart() throws Exception {
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("jetty-virtual-", 0).factory());
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        super.doStop();
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        executor.execute(() -> {
+            running.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * There is always another virtual thread to hand out, so this never refuses
+     */
+    @Override
+    public boolean tryExecute(Runnable task) {
+        execute(task);
+        return true;
+    }
+
+    @Override
+    public void join() throws InterruptedException {
+        var pool = executor;
+        if (pool != null) {
+            while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                // keep waiting until the pool is stopped
+            }
+        }
+    }
+
+    @Override
+    public int getThreads() {
+        return running.get();
+    }
+
+    @Override
+    public int getIdleThreads() {
+        return 0;
+    }
+
+    @Override
+    public boolean isLowOnThreads() {
+        return false;
+    }
+}
@@ -1,17 +1,206 @@
 package server.websocket;
 import org.eclipse.jetty.websocket.api.Session;
-import java.io.IOException;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import websocket.messages.ServerMessage;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * One visitor's WebSocket in one game, with its own queue of outgoing messages.
+ * <p>
+ * Sends never block the caller. A message is queued and written asynchronously,
+ * one at a time, so a visitor on a slow link only falls behind on their own queue.
+ * A queued board is dropped once a newer board is queued behind it, since only the
+ * latest one matters. If the queue still fills up, the visitor is disconnected
+ * rather than letting it grow without bound.
+ * <p>
+ * There is one Connection per visitor, game and session, so a rejoin on the same
+ * socket keeps this queue and only changes the options; two queues never write to
+ * one socket.
+ */
 public class Connection {
-    public String visitor;
-    public Session session;
+    public final String visitor;
+    public final Session session;
+    public final int gameID;
+    // Whether the visitor asked for MOVE messages instead of a LOAD_GAME after every move
+    private volatile boolean moveUpdates;
+    // Whether messages go out as BinaryFrames rather than JSON text
+    private volatile boolean binaryFrames;
+
+    private final int queueCapacity;
+    private final SendMetrics metrics;
+
+    // Guarded by this; never held across a write
+    private final ArrayDeque<Outgoing> queue = new ArrayDeque<>();
+    private boolean writing;
+    private boolean dropped;
+
+    // The format is fixed when queued, so a rejoin that switches it cannot change a waiting message
+    private record Outgoing(EncodedMessage message, boolean binary, long queuedAt) { }
 
-    public Connection(String visitor, Session session){
+    public Connection(String visitor, Session session, int gameID, boolean moveUpdates, boolean binaryFrames,
+                      int queueCapacity, SendMetrics metrics){
         this.visitor = visitor;
         this.session = session;
+        this.gameID = gameID;
+        this.moveUpdates = moveUpdates;
+        this.binaryFrames = binaryFrames;
+        this.queueCapacity = queueCapacity;
+        this.metrics = metrics;
+    }
+
+    public boolean moveUpdates() {
+        return moveUpdates;
+    }
+
+    public boolean binaryFrames() {
+        return binaryFrames;
+    }
+
+    /**
+     * Applies the options from a rejoin; messages already queued keep the format they were queued in
+     */
+    public void update(boolean moveUpdates, boolean binaryFrames) {
+        this.moveUpdates = moveUpdates;
+        this.binaryFrames = binaryFrames;
+    }
+
+    /**
+     * Encodes a message on the calling thread, then queues it to be written after
+     * anything already waiting
+     */
+    public void send(EncodedMessage message) {
+        boolean binary = binaryFrames;
+        message.encodeFor(binary);
+        Outgoing next = null;
+        boolean overflowed = false;
+        synchronized (this) {
+            if (dropped) {
+                return;
+            }
+            if (message.type() == ServerMessage.ServerMessageType.LOAD_GAME) {
+                dropQueuedBoards();
+            }
+            if (queue.size() >= queueCapacity) {
+                overflowed = true;
+                dropped = true;
+                queue.clear();
+            } else {
+                queue.add(new Outgoing(message, binary, System.nanoTime()));
+                metrics.recordQueueDepth(queue.size());
+                if (!writing) {
+                    writing = true;
+                    next = queue.poll();
+                }
+            }
+        }
+
+        if (overflowed) {
+            metrics.recordDisconnect();
+            session.close(StatusCode.TRY_AGAIN_LATER, "Too far behind");
+        } else if (next != null) {
+            write(next);
+        }
+    }
+
+    /**
+     * @return false once the socket is closed or the connection was dropped for falling behind
+     */
+    public boolean isOpen() {
+        synchronized (this) {
+            if (dropped) {
+                return false;
+            }
+        }
+        return session.isOpen();
+    }
+
+    /**
+     * @return how many messages are waiting, not counting one being written
+     */
+    public synchronized int queued() {
+        return queue.size();
+    }
+
+    private void dropQueuedBoards() {
+        Iterator<Outgoing> waiting = queue.iterator();
+        while (waiting.hasNext()) {
+            if (waiting.next().message().type() == ServerMessage.ServerMessageType.LOAD_GAME) {
+                waiting.remove();
+                metrics.recordSuperseded();
+            }
+        }
+    }
+
+    /*
+     * Jetty may call back on the calling thread when a write finishes straight away,
+     * so a burst is written recursively; the depth is bounded by the queue capacity.
+     */
+    private void write(Outgoing outgoing) {
+        try {
+            var callback = new WriteCallback() {
+                @Override
+                public void writeSuccess() {
+                    metrics.recordSent(outgoing.message().type(), System.nanoTime() - outgoing.queuedAt());
+                    writeNext();
+                }
+
+                @Override
+                public void writeFailed(Throwable failure) {
+                    failed();
+                }
+            };
+            if (outgoing.binary()) {
+                // Each send gets its own view, since Jetty moves the buffer's position as it writes
+                session.getRemote().sendBytes(ByteBuffer.wrap(outgoing.message().binary()), callback);
+            } else {
+                session.getRemote().sendString(outgoing.message().json(), callback);
+            }
+        } catch (RuntimeException e) {
+            // Jetty throws straight away if the socket closed before the write started
+            failed();
+        }
+    }
+
+    private void failed() {
+        metrics.recordFailure();
+        synchronized (this) {
+            dropped = true;
+            queue.clear();
+            writing = false;
+        }
+    }
+
+    private void writeNext() {
+        Outgoing next;
+        synchronized (this) {
+            next = queue.poll();
+            if (next == null) {
+                writing = false;
+                return;
+            }
+        }
+        write(next);
+    }
+
+    // The same visitor joining the same game on the same session again is one connection, not two
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Connection that)) {
+            return false;
+        }
+        return gameID == that.gameID && visitor.equals(that.visitor) && session == that.session;
     }
 
-    public void send(String msg) throws IOException {
-        session.getRemote().sendString(msg);
+    @Override
+    public int hashCode() {
+        return Objects.hash(visitor, System.identityHashCode(session), gameID);
     }
 }
@@ -4,56 +4,219 @@ import org.eclipse.jetty.websocket.api.Session;
 import websocket.messages.ServerMessage;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Tracks the open WebSocket connections, indexed both by game and by visitor.
+ * <p>
+ * Each game and each visitor maps to a concurrent set, so broadcasts can iterate a
+ * game while other threads join and leave it, and removing a visitor or sending to
+ * one only touches that visitor's own connections. A set is dropped from its map
+ * once it empties, inside the same compute call, so adds never land in a set that
+ * has just been thrown away.
+ * <p>
+ * A message is encoded at most once per broadcast for each wire format, JSON text
+ * or binary frames, and the same encoding goes to every recipient using it. Each form
+ * is built before the message is queued, so later changes to the game cannot leak into
+ * it. Sends only queue the message on each connection, so a broadcast never waits on a
+ * slow visitor; see {@link Connection}.
+ */
 public class ConnectionManager {
-    public final ConcurrentHashMap<Integer, ArrayList<Connection>> connections = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Set<Connection>> byGame = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<Connection>> byVisitor = new ConcurrentHashMap<>();
+    private final EncodeMetrics metrics = new EncodeMetrics();
+    private final SendMetrics sendMetrics = new SendMetrics();
+    private final int queueCapacity;
+
+    public ConnectionManager(){
+        this(64);
+    }
+
+    /**
+     * @param queueCapacity how many messages may wait on one connection before its visitor is disconnected
+     */
+    public ConnectionManager(int queueCapacity){
+        this.queueCapacity = queueCapacity;
+    }
 
     public void add(Integer gameID, String visitor, Session session){
-        var connection = new Connection(visitor, session);
+        add(gameID, visitor, session, false);
+    }
 
-        if(connections.containsKey(gameID)){
-            var inGame = connections.get(gameID);
-            inGame.add(connection);
-        }else{
-            ArrayList<Connection> gamePlayer = new ArrayList<>();
-            gamePlayer.add(connection);
-            connections.put(gameID, gamePlayer);
-        }
+    public void add(Integer gameID, String visitor, Session session, boolean moveUpdates){
+        add(gameID, visitor, session, moveUpdates, false);
+    }
 
+    /**
+     * @param moveUpdates  whether the visitor gets MOVE messages from {@link #broadcastMove} rather than whole boards
+     * @param binaryFrames whether messages go to the visitor as binary frames rather than JSON text
+     */
+    public void add(Integer gameID, String visitor, Session session, boolean moveUpdates, boolean binaryFrames){
+        var joining = new Connection(visitor, session, gameID, moveUpdates, binaryFrames, queueCapacity, sendMetrics);
+        var added = new Connection[1];
+        byGame.compute(gameID, (id, inGame) -> {
+            var connections = inGame == null ? ConcurrentHashMap.<Connection>newKeySet() : inGame;
+            added[0] = rejoin(connections, joining, moveUpdates, binaryFrames);
+            return connections;
+        });
+        byVisitor.compute(visitor, (name, visitorConnections) -> addTo(visitorConnections, added[0]));
     }
 
+    /**
+     * Removes every connection the visitor has, in any game
+     */
     public void remove(String visitor){
-        for(var gameConnections : connections.values()){
-            gameConnections.removeIf(connection -> connection.visitor.equals(visitor));
+        var visitorConnections = byVisitor.remove(visitor);
+        if(visitorConnections == null){
+            return;
+        }
+        for(var connection : visitorConnections){
+            byGame.computeIfPresent(connection.gameID, (id, inGame) -> removeFrom(inGame, connection));
         }
     }
 
+    public void remove(Connection connection){
+        byGame.computeIfPresent(connection.gameID, (id, inGame) -> removeFrom(inGame, connection));
+        byVisitor.computeIfPresent(connection.visitor, (name, visitorConnections) -> removeFrom(visitorConnections, connection));
+    }
+
     public void broadcast(Integer gameid, String excludeVisitor, ServerMessage message) throws IOException {
-        var inGame = connections.get(gameid);
+        broadcast(gameid, excludeVisitor, encode(message));
+    }
+
+    /**
+     * Sends an already encoded message to everyone in a game except one visitor
+     */
+    public void broadcast(Integer gameid, String excludeVisitor, EncodedMessage message) throws IOException {
+        var inGame = byGame.get(gameid);
+        if(inGame == null){
+            return;
+        }
 
         for(var conn : inGame){
-            if(conn.session.isOpen()){
-                if(!conn.visitor.equals(excludeVisitor)){
-                    conn.send(message.toString());
-                }
+            if(!conn.isOpen()){
+                remove(conn);
+            } else if(!conn.visitor.equals(excludeVisitor)){
+                send(conn, message);
             }
         }
 
     }
 
-    public void broadcastToOne(Integer gameid, String visitor, ServerMessage message) throws IOException {
-        var inGame = connections.get(gameid);
+    /**
+     * Sends everyone in a game the move just played. Visitors that asked for MOVE
+     * messages get only that; everyone else gets the whole board, plus the
+     * notification unless they made the move. Each message is encoded at most once.
+     */
+    public void broadcastMove(Integer gameid, String mover, ServerMessage board, ServerMessage notification,
+                              ServerMessage move) throws IOException {
+        var inGame = byGame.get(gameid);
+        if(inGame == null){
+            return;
+        }
 
+        EncodedMessage encodedBoard = encode(board);
+        EncodedMessage encodedNotification = encode(notification);
+        EncodedMessage encodedMove = encode(move);
         for(var conn : inGame){
-            if(conn.session.isOpen()){
-                if(conn.visitor.equals(visitor)){
-                    conn.send(message.toString());
+            if(!conn.isOpen()){
+                remove(conn);
+            } else if(conn.moveUpdates()){
+                send(conn, encodedMove);
+            } else {
+                send(conn, encodedBoard);
+                if(!conn.visitor.equals(mover)){
+                    send(conn, encodedNotification);
                 }
             }
         }
+    }
+
+    public void broadcastToOne(Integer gameid, String visitor, ServerMessage message) throws IOException {
+        var visitorConnections = byVisitor.get(visitor);
+        if(visitorConnections == null){
+            return;
+        }
+
+        EncodedMessage encoded = encode(message);
+        for(var conn : visitorConnections){
+            if(conn.gameID != gameid){
+                continue;
+            }
+            if(!conn.isOpen()){
+                remove(conn);
+            } else {
+                send(conn, encoded);
+            }
+        }
+
+    }
+
+    public EncodedMessage encode(ServerMessage message){
+        return EncodedMessage.of(message, metrics);
+    }
+
+    public EncodeMetrics metrics(){
+        return metrics;
+    }
+
+    public SendMetrics sendMetrics(){
+        return sendMetrics;
+    }
+
+    /**
+     * @return how many messages are waiting across every connection right now
+     */
+    public int queuedMessages(){
+        int queued = 0;
+        for(var inGame : byGame.values()){
+            for(var conn : inGame){
+                queued += conn.queued();
+            }
+        }
+        return queued;
+    }
+
+    private void send(Connection conn, EncodedMessage message) {
+        conn.send(message);
+        metrics.recordSend(message.type());
+    }
+
+    /**
+     * @return how many connections are open on a game
+     */
+    public int connectionCount(int gameID){
+        var inGame = byGame.get(gameID);
+        return inGame == null ? 0 : inGame.size();
+    }
+
+    /*
+     * A rejoin on the same session keeps the existing connection and its queue, so its
+     * in-flight writes stay the only ones on that socket; only the options change.
+     */
+    private static Connection rejoin(Set<Connection> connections, Connection joining,
+                                     boolean moveUpdates, boolean binaryFrames){
+        for(var existing : connections){
+            if(existing.equals(joining)){
+                existing.update(moveUpdates, binaryFrames);
+                return existing;
+            }
+        }
+        connections.add(joining);
+        return joining;
+    }
+
+    private static Set<Connection> addTo(Set<Connection> connections, Connection connection){
+        if(connections == null){
+            connections = ConcurrentHashMap.newKeySet();
+        }
+        connections.add(connection);
+        return connections;
+    }
 
+    private static Set<Connection> removeFrom(Set<Connection> connections, Connection connection){
+        connections.remove(connection);
+        return connections.isEmpty() ? null : connections;
     }
 }
@@ -0,0 +1,83 @@
+package server.websocket;
+
+import websocket.messages.ServerMessage.ServerMessageType;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how often each kind of server message is encoded, how long encoding
+ * takes, and how many recipients each encoding is shared with. Every counter can
+ * be updated from any thread without locking.
+ */
+public class EncodeMetrics {
+
+    private final Map<ServerMessageType, Counters> byType = new EnumMap<>(ServerMessageType.class);
+
+    public EncodeMetrics() {
+        for (var type : ServerMessageType.values()) {
+            byType.put(type, new Counters());
+        }
+    }
+
+    private static final class Counters {
+        private final LongAdder encodes = new LongAdder();
+        private final LongAdder encodeNanos = new LongAdder();
+        private final LongAccumulator maxEncodeNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder chars = new LongAdder();
+        private final LongAdder sends = new LongAdder();
+    }
+
+    /**
+     * A point in time reading of the counters for one message type
+     *
+     * @param encodes        how many messages were encoded
+     * @param encodeNanos    total time spent encoding them
+     * @param maxEncodeNanos the slowest single encode
+     * @param chars          total length of the encoded text
+     * @param sends          how many times an encoded message was sent
+     */
+    public record Snapshot(long encodes, long encodeNanos, long maxEncodeNanos, long chars, long sends) {
+        public double averageEncodeMicros() {
+            return encodes == 0 ? 0 : encodeNanos / 1000.0 / encodes;
+        }
+
+        /**
+         * @return the average number of recipients that shared each encode
+         */
+        public double sendsPerEncode() {
+            return encodes == 0 ? 0 : (double) sends / encodes;
+        }
+    }
+
+    void recordEncode(ServerMessageType type, long nanos, int length) {
+        var counters = byType.get(type);
+        counters.encodes.increment();
+        counters.encodeNanos.add(nanos);
+        counters.maxEncodeNanos.accumulate(nanos);
+        counters.chars.add(length);
+    }
+
+    void recordSend(ServerMessageType type) {
+        byType.get(type).sends.increment();
+    }
+
+    public Snapshot snapshot(ServerMessageType type) {
+        var counters = byType.get(type);
+        return new Snapshot(counters.encodes.sum(), counters.encodeNanos.sum(), counters.maxEncodeNanos.get(),
+                counters.chars.sum(), counters.sends.sum());
+    }
+
+    @Override
+    public String toString() {
+        var summary = new StringBuilder();
+        for (var type : ServerMessageType.values()) {
+            var stats = snapshot(type);
+            summary.append(String.format("%s: %d encodes, %.1f us avg, %.1f us max, %.1f sends/encode%n", type,
+                    stats.encodes(), stats.averageEncodeMicros(), stats.maxEncodeNanos() / 1000.0, stats.sendsPerEncode()));
+        }
+        return summary.toString();
+    }
+}
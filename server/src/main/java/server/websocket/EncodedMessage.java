@@ -0,0 +1,78 @@
+package server.websocket;
+
+import websocket.BinaryFrames;
+import websocket.messages.ServerMessage;
+
+/**
+ * A server message together with its wire forms, so one broadcast can go out to
+ * every recipient without encoding it again for each of them.
+ * <p>
+ * A form is built by {@link #encodeFor} on the broadcasting thread, before the
+ * message is queued on any connection: the JSON text for clients on text frames and
+ * the {@link BinaryFrames} bytes for clients that asked for binary. Neither is built
+ * if no recipient uses it. Encoding up front matters because a LOAD_GAME holds the
+ * live board, which the game's next command changes in place; a form built later,
+ * when a queued write finally runs, could show a newer or half-updated position.
+ */
+public final class EncodedMessage {
+
+    private final ServerMessage message;
+    private final EncodeMetrics metrics;
+    private volatile String json;
+    private volatile byte[] binary;
+
+    private EncodedMessage(ServerMessage message, EncodeMetrics metrics) {
+        this.message = message;
+        this.metrics = metrics;
+    }
+
+    public static EncodedMessage of(ServerMessage message, EncodeMetrics metrics) {
+        return new EncodedMessage(message, metrics);
+    }
+
+    public ServerMessage.ServerMessageType type() {
+        return message.getServerMessageType();
+    }
+
+    /**
+     * Builds the form a recipient needs, if it has not been built yet
+     *
+     * @param binaryFrames whether the recipient takes binary frames rather than JSON text
+     */
+    public synchronized void encodeFor(boolean binaryFrames) {
+        long start = System.nanoTime();
+        if (binaryFrames && binary == null) {
+            byte[] encoded = BinaryFrames.encodeMessage(message);
+            metrics.recordEncode(type(), System.nanoTime() - start, encoded.length);
+            binary = encoded;
+        } else if (!binaryFrames && json == null) {
+            String encoded = message.toString();
+            metrics.recordEncode(type(), System.nanoTime() - start, encoded.length());
+            json = encoded;
+        }
+    }
+
+    /**
+     * @return the text frame to send
+     * @throws IllegalStateException if {@link #encodeFor} has not built it
+     */
+    public String json() {
+        String encoded = json;
+        if (encoded == null) {
+            throw new IllegalStateException("JSON form was not encoded before sending");
+        }
+        return encoded;
+    }
+
+    /**
+     * @return the binary frame to send; callers must not modify it
+     * @throws IllegalStateException if {@link #encodeFor} has not built it
+     */
+    public byte[] binary() {
+        byte[] encoded = binary;
+        if (encoded == null) {
+            throw new IllegalStateException("Binary form was not encoded before sending");
+        }
+        return encoded;
+    }
+}
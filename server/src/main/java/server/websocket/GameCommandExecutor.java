@@ -0,0 +1,192 @@
+package server.websocket;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the commands for each game one at a time, in the order they arrived, while
+ * commands for different games run in parallel on a shared pool.
+ * <p>
+ * Every game with work waiting has a mailbox. Only one pool thread drains a given
+ * mailbox at a time, so a command always sees the game as the previous command
+ * left it. Mailboxes are bounded; once one is full, further commands for that game
+ * are refused until it catches up.
+ */
+public class GameCommandExecutor {
+
+    private final ExecutorService workers;
+    private final int mailboxCapacity;
+    private final ConcurrentHashMap<Integer, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    // Only touched inside ConcurrentHashMap.compute for the mailbox's game, which serializes access
+    private static final class Mailbox {
+        private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+        private boolean running;
+    }
+
+    public GameCommandExecutor(ExecutorService workers, int mailboxCapacity) {
+        this.workers = workers;
+        this.mailboxCapacity = mailboxCapacity;
+    }
+
+    /**
+     * Creates an executor on a fixed pool of daemon threads, two per core since
+     * commands spend much of their time waiting on the database
+     */
+    public static GameCommandExecutor withPlatformThreads(int mailboxCapacity) {
+        var threadCount = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        var count = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "game-commands-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        return new GameCommandExecutor(pool, mailboxCapacity);
+    }
+
+    /**
+     * Creates an executor that runs each game's commands on a virtual thread, so a
+     * command waiting on the database holds no platform thread
+     */
+    public static GameCommandExecutor withVirtualThreads(int mailboxCapacity) {
+        var pool = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("game-commands-", 0).factory());
+        return new GameCommandExecutor(pool, mailboxCapacity);
+    }
+
+    /**
+     * Queues a command for a game
+     *
+     * @throws RejectedExecutionException if the game already has a full mailbox, or
+     *                                    the pool refused to start it, e.g. during shutdown
+     */
+    public void submit(int gameID, Runnable command) {
+        var rejected = new boolean[1];
+        var start = new boolean[1];
+
+        mailboxes.compute(gameID, (id, mailbox) -> {
+            if (mailbox == null) {
+                mailbox = new Mailbox();
+            }
+            if (mailbox.queue.size() >= mailboxCapacity) {
+                rejected[0] = true;
+                return mailbox;
+            }
+            mailbox.queue.add(command);
+            if (!mailbox.running) {
+                mailbox.running = true;
+                start[0] = true;
+            }
+            return mailbox;
+        });
+
+        if (rejected[0]) {
+            throw new RejectedExecutionException("Too many commands waiting for game " + gameID);
+        }
+        if (start[0]) {
+            try {
+                workers.execute(() -> drain(gameID));
+            } catch (RejectedExecutionException e) {
+                withdraw(gameID, command);
+                throw e;
+            }
+        }
+    }
+
+    /*
+     * Undoes a submit whose drain never started, so the mailbox is not left marked
+     * running with nobody draining it. Commands others queued meanwhile stay, and the
+     * next submit starts a drain for them.
+     */
+    private void withdraw(int gameID, Runnable command) {
+        mailboxes.computeIfPresent(gameID, (id, mailbox) -> {
+            mailbox.queue.remove(command);
+            mailbox.running = false;
+            return mailbox.queue.isEmpty() ? null : mailbox;
+        });
+    }
+
+    /**
+     * @return the number of commands waiting for a game, not counting one that is running
+     */
+    public int queued(int gameID) {
+        var depth = new int[1];
+        mailboxes.computeIfPresent(gameID, (id, mailbox) -> {
+            depth[0] = mailbox.queue.size();
+            return mailbox;
+        });
+        return depth[0];
+    }
+
+    public void shutdown() {
+        workers.shutdown();
+        try {
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain(int gameID) {
+        var next = new Runnable[1];
+        boolean emptied = false;
+        try {
+            while (true) {
+                // An empty mailbox is removed in the same step that finds it empty, so a new command starts a fresh drain
+                mailboxes.compute(gameID, (id, mailbox) -> {
+                    next[0] = mailbox.queue.poll();
+                    if (next[0] == null) {
+                        mailbox.running = false;
+                        return null;
+                    }
+                    return mailbox;
+                });
+                if (next[0] == null) {
+                    emptied = true;
+                    return;
+                }
+
+                try {
+                    next[0].run();
+                } catch (RuntimeException e) {
+                    System.err.println("Command for game " + gameID + " failed: " + e);
+                }
+            }
+        } finally {
+            if (!emptied) {
+                handOff(gameID);
+            }
+        }
+    }
+
+    /*
+     * Called when an Error escapes a command and ends its drain. The mailbox is still
+     * marked running, so the commands left in it get a fresh drain; otherwise no later
+     * submit would ever start one and the game would stop answering.
+     */
+    private void handOff(int gameID) {
+        var start = new boolean[1];
+        mailboxes.computeIfPresent(gameID, (id, mailbox) -> {
+            if (mailbox.queue.isEmpty()) {
+                mailbox.running = false;
+                return null;
+            }
+            start[0] = true;
+            return mailbox;
+        });
+        if (start[0]) {
+            try {
+                workers.execute(() -> drain(gameID));
+            } catch (RejectedExecutionException e) {
+                mailboxes.computeIfPresent(gameID, (id, mailbox) -> {
+                    mailbox.running = false;
+                    return mailbox;
+                });
+            }
+        }
+    }
+}
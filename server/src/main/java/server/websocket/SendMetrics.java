@@ -0,0 +1,95 @@
+package server.websocket;
+
+import websocket.messages.ServerMessage.ServerMessageType;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts what happens to messages after they are queued on a connection: how long
+ * they wait until written, how deep queues get, and how many are dropped or cut
+ * off with a slow visitor. Every counter can be updated from any thread without
+ * locking.
+ */
+public class SendMetrics {
+
+    private final Map<ServerMessageType, Latency> latencyByType = new EnumMap<>(ServerMessageType.class);
+    private final LongAccumulator maxQueueDepth = new LongAccumulator(Math::max, 0);
+    private final LongAdder superseded = new LongAdder();
+    private final LongAdder disconnects = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public SendMetrics() {
+        for (var type : ServerMessageType.values()) {
+            latencyByType.put(type, new Latency());
+        }
+    }
+
+    private static final class Latency {
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * A point in time reading of the counters
+     *
+     * @param sent           messages written to the socket
+     * @param totalNanos     total time those messages spent between being queued and written
+     * @param maxNanos       the longest any one message took
+     * @param maxQueueDepth  the most messages ever waiting on one connection
+     * @param superseded     queued boards dropped because a newer board was queued
+     * @param disconnects    visitors cut off for letting their queue fill up
+     * @param failures       writes the socket rejected
+     */
+    public record Snapshot(long sent, long totalNanos, long maxNanos, long maxQueueDepth,
+                           long superseded, long disconnects, long failures) {
+        public double averageLatencyMicros() {
+            return sent == 0 ? 0 : totalNanos / 1000.0 / sent;
+        }
+    }
+
+    void recordSent(ServerMessageType type, long latencyNanos) {
+        var latency = latencyByType.get(type);
+        latency.sent.increment();
+        latency.totalNanos.add(latencyNanos);
+        latency.maxNanos.accumulate(latencyNanos);
+    }
+
+    void recordQueueDepth(int depth) {
+        maxQueueDepth.accumulate(depth);
+    }
+
+    void recordSuperseded() {
+        superseded.increment();
+    }
+
+    void recordDisconnect() {
+        disconnects.increment();
+    }
+
+    void recordFailure() {
+        failures.increment();
+    }
+
+    public Snapshot snapshot(ServerMessageType type) {
+        var latency = latencyByType.get(type);
+        return new Snapshot(latency.sent.sum(), latency.totalNanos.sum(), latency.maxNanos.get(), maxQueueDepth.get(),
+                superseded.sum(), disconnects.sum(), failures.sum());
+    }
+
+    @Override
+    public String toString() {
+        var summary = new StringBuilder();
+        for (var type : ServerMessageType.values()) {
+            var stats = snapshot(type);
+            summary.append(String.format("%s: %d sent, %.1f us avg latency, %.1f us max%n", type, stats.sent(),
+                    stats.averageLatencyMicros(), stats.maxNanos() / 1000.0));
+        }
+        summary.append(String.format("max queue depth %d, %d boards superseded, %d slow visitors disconnected, %d failed writes%n",
+                maxQueueDepth.get(), superseded.sum(), disconnects.sum(), failures.sum()));
+        return summary.toString();
+    }
+}
@@ -4,6 +4,7 @@ import chess.ChessBoard;
 import chess.ChessGame;
 import chess.ChessMove;
 import chess.InvalidMoveException;
+import chess.PackedMove;
 import com.google.gson.Gson;
 import dataaccess.AuthDAO;
 import dataaccess.DataAccessException;
@@ -14,33 +15,117 @@ import model.GameData;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
 import org.eclipse.jetty.websocket.api.annotations.WebSocket;
+import websocket.BinaryFrames;
 import websocket.commands.UserGameCommand;
 import websocket.messages.ServerMessage;
 
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.RejectedExecutionException;
 
 @WebSocket
 public class WebSocketHandler {
+    // A full snapshot of a game is saved every this many moves; the moves in between are only appended to its log
+    private static final int SNAPSHOT_INTERVAL = 20;
+    private static final Gson GSON = new Gson();
+
     private final ConnectionManager connections = new ConnectionManager();
     private final GameDAO gameDAO;
     private final AuthDAO authDAO;
     private UserDAO userDAO;
+    // Commands for one game run one after another so they never interleave their read-modify-write of the game
+    private final GameCommandExecutor commands;
 
     public WebSocketHandler(GameDAO gameDAO1, AuthDAO authDAO1, UserDAO userDAO1){
+        this(gameDAO1, authDAO1, userDAO1, GameCommandExecutor.withPlatformThreads(64));
+    }
+
+    public WebSocketHandler(GameDAO gameDAO1, AuthDAO authDAO1, UserDAO userDAO1, GameCommandExecutor commands1){
         gameDAO = gameDAO1;
         authDAO = authDAO1;
         userDAO = userDAO1;
+        commands = commands1;
+    }
+
+    @OnWebSocketMessage
+    public void onMessage(Session session, String message) throws IOException {
+        UserGameCommand action = GSON.fromJson(message, UserGameCommand.class);
+        dispatch(action, session, false);
     }
 
+    /**
+     * Takes commands sent as {@link BinaryFrames}. A client that sends them gets its
+     * replies as binary frames too.
+     */
     @OnWebSocketMessage
-    public void onMessage(Session session, String message) throws IOException, ResponseException, DataAccessException, InvalidMoveException {
-        UserGameCommand action = new Gson().fromJson(message, UserGameCommand.class);
+    public void onMessage(Session session, byte[] payload, int offset, int length) {
+        UserGameCommand action;
+        try {
+            action = BinaryFrames.decodeCommand(payload, offset, length);
+        } catch (IllegalArgumentException e) {
+            var notification = new ServerMessage(ServerMessage.ServerMessageType.ERROR, "ERROR: " + e.getMessage());
+            session.getRemote().sendBytesByFuture(ByteBuffer.wrap(BinaryFrames.encodeMessage(notification)));
+            return;
+        }
+        dispatch(action, session, true);
+    }
+
+    private void dispatch(UserGameCommand action, Session session, boolean binary) {
+        int gameID = action.getGameID() == null ? 0 : action.getGameID();
+
+        try {
+            commands.submit(gameID, () -> runCommand(gameID, action, session));
+        } catch (RejectedExecutionException e) {
+            var notification = new ServerMessage(ServerMessage.ServerMessageType.ERROR, "ERROR: Server busy, try again");
+            // Never block the socket's thread on a client that is already behind
+            if (binary) {
+                session.getRemote().sendBytesByFuture(ByteBuffer.wrap(BinaryFrames.encodeMessage(notification)));
+            } else {
+                session.getRemote().sendStringByFuture(notification.toString());
+            }
+        }
+    }
+
+    public void stop() {
+        commands.shutdown();
+    }
+
+    public EncodeMetrics encodeMetrics() {
+        return connections.metrics();
+    }
+
+    public SendMetrics sendMetrics() {
+        return connections.sendMetrics();
+    }
+
+    /**
+     * @return how many outgoing messages are waiting on slow connections right now
+     */
+    public int queuedMessages() {
+        return connections.queuedMessages();
+    }
+
+    // The game stays pinned while the command runs, so a cache cannot swap it for a fresh copy mid-command
+    private void runCommand(int gameID, UserGameCommand action, Session session) {
+        gameDAO.pin(gameID);
+        try {
+            handleCommand(action, session);
+        } catch (IOException | ResponseException | DataAccessException | InvalidMoveException e) {
+            System.err.println("Unable to handle " + action.getCommandType() + " for game " + action.getGameID() + ": " + e.getMessage());
+        } finally {
+            gameDAO.unpin(gameID);
+        }
+    }
+
+    private void handleCommand(UserGameCommand action, Session session) throws IOException, ResponseException, DataAccessException, InvalidMoveException {
         switch (action.getCommandType()){
-            case CONNECT  -> enter(action.getAuthToken(), action.getGameID(), session);
+            case CONNECT  -> enter(action.getAuthToken(), action.getGameID(), action.wantsMoveUpdates(),
+                    action.wantsBinaryFrames(), session);
             case LEAVE -> leave(action.getAuthToken(), action.getGameID(), session);
             case RESIGN -> resign(action.getAuthToken(), action.getGameID(), session);
             case MAKE_MOVE -> makeMove(action.getAuthToken(), action.getGameID(), action.getMove(), session);
+            case RESYNC -> resync(action.getAuthToken(), action.getGameID(), session);
         }
     }
 
@@ -77,8 +162,12 @@ public class WebSocketHandler {
         try {
             game.makeMove(move);
             game.setTeamTurn(enemyTeam);
-            updateGameState(gameID, gameInPlay, game);
-            broadcastMoveNotifications(username, userTeam, move, game, enemyTeam, gameID);
+            ChessGame.GameState state = game.getGameState(enemyTeam);
+            if (state == ChessGame.GameState.CHECKMATE || state == ChessGame.GameState.STALEMATE) {
+                game.endGame();
+            }
+            saveMove(gameID, gameInPlay, game, move);
+            broadcastMoveNotifications(username, userTeam, move, game, state, gameID);
         } catch (InvalidMoveException e) {
             sendError(username, "ERROR: Wrong turn", gameID);
         }
@@ -119,35 +208,46 @@ public class WebSocketHandler {
         return false;
     }
 
+    /**
+     * Appends the move to the game's log, and saves a full snapshot every few moves
+     * and when the game has ended
+     */
+    private void saveMove(Integer gameID, GameData gameInPlay, ChessGame game, ChessMove move) throws DataAccessException, ResponseException {
+        gameDAO.appendMove(gameID, game.getPly(), PackedMove.fromChessMove(move));
+        if (game.checkGameStatus() || game.getPly() % SNAPSHOT_INTERVAL == 0) {
+            updateGameState(gameID, gameInPlay, game);
+        }
+    }
+
     private void updateGameState(Integer gameID, GameData gameInPlay, ChessGame game) throws DataAccessException, ResponseException {
         GameData newGame = new GameData(gameID, gameInPlay.whiteUsername(), gameInPlay.blackUsername(), gameInPlay.gameName(), game);
-        gameDAO.updateGame(newGame);
+        gameDAO.updateGameAfterMove(newGame);
     }
 
     private void broadcastMoveNotifications(String username, ChessGame.TeamColor userTeam,
-                                            ChessMove move, ChessGame game, ChessGame.TeamColor enemyTeam, int gameID)
+                                            ChessMove move, ChessGame game, ChessGame.GameState state, int gameID)
             throws IOException, ResponseException, DataAccessException {
 
         var notification = new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME, game.getBoard());
-        connections.broadcast(gameID,"", notification);
 
         String message = String.format("message: " + userTeam + " team moved " +
                 move.getStartPosition().toString() + " to " + move.getEndPosition().toString());
         var notificationForMove = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION, message);
-        connections.broadcast(gameID, username, notificationForMove);
 
-        sendCheckStatusNotifications(game, enemyTeam, gameID);
+        // Clients taking MOVE messages rebuild both the board and the move notice from the move itself
+        var moveUpdate = new ServerMessage(move, game.getPly(), game.getBoard().getZobristKey());
+        connections.broadcastMove(gameID, username, notification, notificationForMove, moveUpdate);
+
+        sendCheckStatusNotifications(state, gameID);
     }
 
-    private void sendCheckStatusNotifications(ChessGame game, ChessGame.TeamColor enemyTeam, int gameID) throws IOException {
-        if (game.isInCheckmate(enemyTeam)) {
-            sendCheckNotification("Checkmate", gameID);
-            game.endGame();
-        } else if (game.isInStalemate(enemyTeam)) {
-            sendCheckNotification("Stalemate", gameID);
-            game.endGame();
-        }else if (game.isInCheck(enemyTeam)) {
-            sendCheckNotification("Check", gameID);
+    private void sendCheckStatusNotifications(ChessGame.GameState state, int gameID) throws IOException {
+        switch (state) {
+            case CHECKMATE -> sendCheckNotification("Checkmate", gameID);
+            case STALEMATE -> sendCheckNotification("Stalemate", gameID);
+            case CHECK -> sendCheckNotification("Check", gameID);
+            case NORMAL -> {
+            }
         }
     }
 
@@ -207,12 +307,33 @@ public class WebSocketHandler {
         connections.remove(username);
     }
 
-    private void enter(String authToken, int gameID, Session session) throws IOException, ResponseException, DataAccessException {
+    /**
+     * Sends the whole board to a visitor whose copy no longer matches the MOVE messages it is getting
+     */
+    private void resync(String authToken, int gameID, Session session) throws IOException, ResponseException, DataAccessException {
+        String username;
+        try {
+            username = authDAO.getAuth(authToken).username();
+        } catch (DataAccessException e) {
+            handleUnauthorized(gameID, authToken, session);
+            return;
+        }
+
+        try {
+            ChessBoard board = gameDAO.getGame(gameID).game().getBoard();
+            var notification = new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME, board);
+            connections.broadcastToOne(gameID, username, notification);
+        } catch (DataAccessException e) {
+            sendError(username, "ERROR: Game does not exist", gameID);
+        }
+    }
+
+    private void enter(String authToken, int gameID, boolean moveUpdates, boolean binaryFrames, Session session) throws IOException, ResponseException, DataAccessException {
 
         try {
             String username = authDAO.getAuth(authToken).username();
             try {
-                connections.add(gameID, username, session);
+                connections.add(gameID, username, session, moveUpdates, binaryFrames);
                 var message = String.format("message: " + username + " has entered the game");
                 GameData gameData = gameDAO.getGame(gameID);
                 ChessBoard game = gameData.game().getBoard();
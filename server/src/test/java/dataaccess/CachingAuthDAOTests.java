@@ -0,0 +1,82 @@
+package dataaccess;
+
+import exception.ResponseException;
+import model.AuthData;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingAuthDAOTests {
+
+    // Counts the lookups that reach the backing store
+    private static class CountingAuthDAO extends MemoryAuthDAO {
+        int reads;
+
+        @Override
+        public AuthData getAuth(String authToken) throws DataAccessException {
+            reads++;
+            return super.getAuth(authToken);
+        }
+    }
+
+    private final CountingAuthDAO backing = new CountingAuthDAO();
+    private final AuthData auth = new AuthData("token", "user");
+
+    @Test
+    void knownTokenIsCached() throws DataAccessException, ResponseException {
+        backing.createAuth(auth);
+        var cache = new CachingAuthDAO(backing, 100, 60_000, 60_000);
+
+        assertEquals(auth, cache.getAuth("token"));
+        assertEquals(auth, cache.getAuth("token"));
+        assertEquals(1, backing.reads);
+    }
+
+    @Test
+    void unknownTokenIsCachedBriefly() throws InterruptedException {
+        var cache = new CachingAuthDAO(backing, 100, 60_000, 50);
+
+        assertThrows(DataAccessException.class, () -> cache.getAuth("missing"));
+        assertThrows(DataAccessException.class, () -> cache.getAuth("missing"));
+        assertEquals(1, backing.reads);
+
+        Thread.sleep(100);
+        assertThrows(DataAccessException.class, () -> cache.getAuth("missing"));
+        assertEquals(2, backing.reads);
+    }
+
+    @Test
+    void deleteTakesEffectImmediately() throws DataAccessException, ResponseException {
+        var cache = new CachingAuthDAO(backing, 100, 60_000, 60_000);
+        cache.createAuth(auth);
+        assertEquals(auth, cache.getAuth("token"));
+
+        cache.deleteAuth("token");
+        assertThrows(DataAccessException.class, () -> cache.getAuth("token"));
+    }
+
+    @Test
+    void expiredEntryIsLookedUpAgain() throws DataAccessException, ResponseException, InterruptedException {
+        backing.createAuth(auth);
+        var cache = new CachingAuthDAO(backing, 100, 50, 50);
+        cache.getAuth("token");
+
+        Thread.sleep(100);
+        cache.getAuth("token");
+        assertEquals(2, backing.reads);
+    }
+
+    @Test
+    void sizeIsBounded() throws DataAccessException, ResponseException {
+        var cache = new CachingAuthDAO(backing, 2, 60_000, 60_000);
+        for (String token : new String[]{"a", "b", "c"}) {
+            cache.createAuth(new AuthData(token, "user"));
+        }
+
+        cache.getAuth("b");
+        cache.getAuth("c");
+        assertEquals(0, backing.reads);
+        cache.getAuth("a");
+        assertEquals(1, backing.reads);
+    }
+}
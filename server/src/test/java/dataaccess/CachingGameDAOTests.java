@@ -0,0 +1,215 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.PackedMove;
+import exception.ResponseException;
+import model.GameData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingGameDAOTests {
+
+    // Counts what reaches the backing store
+    private static class RecordingGameDAO extends MemoryGameDAO {
+        volatile CountDownLatch readGate;
+        int reads;
+        final List<GameData> updates = new ArrayList<>();
+        final List<Integer> appendedPlies = new ArrayList<>();
+
+        @Override
+        public GameData getGame(int gameId) throws DataAccessException {
+            reads++;
+            if (readGate != null) {
+                try {
+                    readGate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.getGame(gameId);
+        }
+
+        @Override
+        public void updateGame(GameData game) throws DataAccessException {
+            updates.add(game);
+            super.updateGame(game);
+        }
+
+        @Override
+        public void appendMove(int gameID, int ply, int encodedMove) throws DataAccessException {
+            appendedPlies.add(ply);
+            super.appendMove(gameID, ply, encodedMove);
+        }
+    }
+
+    private final RecordingGameDAO backing = new RecordingGameDAO();
+    private CachingGameDAO cache;
+
+    @AfterEach
+    void close() throws DataAccessException, ResponseException {
+        cache.close();
+    }
+
+    private CachingGameDAO cache(CachingGameDAO.Durability durability, int maxGames) {
+        // A long flush interval keeps the background flusher out of the way so tests flush by hand
+        cache = new CachingGameDAO(backing, durability, maxGames, 60_000, 60_000);
+        return cache;
+    }
+
+    private static GameData game(int gameID) {
+        return new GameData(gameID, "white", "black", "game" + gameID, new ChessGame());
+    }
+
+    private static int move(ChessGame game, int startRow, int startCol, int endRow, int endCol) throws InvalidMoveException {
+        var move = new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+        game.makeMove(move);
+        return PackedMove.fromChessMove(move);
+    }
+
+    @Test
+    void readsAreServedFromCache() throws DataAccessException, ResponseException {
+        backing.createGame(game(1));
+        cache(CachingGameDAO.Durability.WRITE_BEHIND, 10);
+
+        GameData first = cache.getGame(1);
+        assertSame(first, cache.getGame(1));
+        assertEquals(1, backing.reads);
+    }
+
+    @Test
+    void queuedWritesAreCoalesced() throws DataAccessException, ResponseException, InvalidMoveException {
+        cache(CachingGameDAO.Durability.WRITE_BEHIND, 10);
+        cache.createGame(game(1));
+        ChessGame game = cache.getGame(1).game();
+
+        cache.appendMove(1, 1, move(game, 2, 5, 4, 5));
+        cache.appendMove(1, 2, move(game, 7, 5, 5, 5));
+        cache.updateGameAfterMove(new GameData(1, "white", "black", "game1", game));
+        cache.appendMove(1, 3, move(game, 1, 7, 3, 6));
+        assertTrue(backing.updates.isEmpty());
+        assertTrue(backing.appendedPlies.isEmpty());
+
+        cache.flush();
+        assertEquals(1, backing.updates.size());
+        assertEquals(2, backing.updates.getFirst().game().getPly(), "The snapshot is taken when it is queued");
+        assertEquals(List.of(3), backing.appendedPlies, "Moves the snapshot covers are not written again");
+    }
+
+    @Test
+    void finishedGameIsSavedBeforeReturning() throws DataAccessException, ResponseException {
+        cache(CachingGameDAO.Durability.SYNC_ON_GAME_END, 10);
+        cache.createGame(game(1));
+
+        cache.updateGameAfterMove(game(1));
+        assertTrue(backing.updates.isEmpty());
+
+        GameData finished = game(1);
+        finished.game().endGame();
+        cache.updateGameAfterMove(finished);
+        assertEquals(1, backing.updates.size());
+        assertTrue(backing.updates.getFirst().game().checkGameStatus());
+    }
+
+    @Test
+    void leastRecentlyUsedGameIsEvicted() throws DataAccessException, ResponseException {
+        cache(CachingGameDAO.Durability.WRITE_THROUGH, 2);
+        cache.createGame(game(1));
+        cache.createGame(game(2));
+        cache.getGame(1);
+        cache.createGame(game(3));
+
+        cache.getGame(1);
+        cache.getGame(3);
+        assertEquals(0, backing.reads);
+        cache.getGame(2);
+        assertEquals(1, backing.reads);
+    }
+
+    @Test
+    void evictedGameIsReloadedOnceSaved() throws DataAccessException, ResponseException {
+        cache(CachingGameDAO.Durability.WRITE_BEHIND, 1);
+        cache.createGame(game(1));
+        cache.updateGameAfterMove(new GameData(1, "newWhite", "black", "game1", new ChessGame()));
+        cache.flush();
+        cache.createGame(game(2));
+
+        assertEquals("newWhite", cache.getGame(1).whiteUsername());
+        assertEquals(1, backing.reads);
+        assertEquals(1, backing.updates.size());
+    }
+
+    @Test
+    void concurrentMissesShareOneCopy() throws Exception {
+        backing.createGame(game(1));
+        cache(CachingGameDAO.Durability.WRITE_BEHIND, 10);
+        backing.readGate = new CountDownLatch(1);
+
+        var first = CompletableFuture.supplyAsync(() -> load(1));
+        var second = CompletableFuture.supplyAsync(() -> load(1));
+        Thread.sleep(50);
+        backing.readGate.countDown();
+
+        assertSame(first.get(), second.get());
+        assertEquals(1, backing.reads);
+    }
+
+    private GameData load(int gameID) {
+        try {
+            return cache.getGame(gameID);
+        } catch (DataAccessException | ResponseException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void seatChangesAreSavedBeforeReturning() throws DataAccessException, ResponseException {
+        cache(CachingGameDAO.Durability.WRITE_BEHIND, 10);
+        cache.createGame(game(1));
+
+        cache.updateGame(new GameData(1, "white", null, "game1", cache.getGame(1).game()));
+        assertEquals(1, backing.updates.size());
+        assertNull(backing.getGame(1).blackUsername());
+    }
+
+    @Test
+    void pinnedGameIsNotEvictedMidCommand() throws DataAccessException, ResponseException, InvalidMoveException {
+        cache(CachingGameDAO.Durability.WRITE_THROUGH, 1);
+        cache.createGame(game(1));
+
+        cache.pin(1);
+        GameData held = cache.getGame(1);
+        cache.createGame(game(2));
+        cache.getGame(2);
+        assertSame(held, cache.getGame(1), "The command's copy is still the cached one");
+
+        cache.appendMove(1, 1, move(held.game(), 2, 5, 4, 5));
+        cache.unpin(1);
+        cache.getGame(2);
+        cache.createGame(game(3));
+        int reads = backing.reads;
+        cache.getGame(1);
+        assertEquals(reads + 1, backing.reads, "Once unpinned it can be evicted again");
+    }
+
+    @Test
+    void gameWithUnsavedMovesIsNotEvicted() throws DataAccessException, ResponseException, InvalidMoveException {
+        cache(CachingGameDAO.Durability.WRITE_BEHIND, 1);
+        cache.createGame(game(1));
+        GameData first = cache.getGame(1);
+        cache.appendMove(1, 1, move(first.game(), 2, 5, 4, 5));
+
+        cache.createGame(game(2));
+        assertSame(first, cache.getGame(1));
+        assertEquals(0, backing.reads);
+    }
+}
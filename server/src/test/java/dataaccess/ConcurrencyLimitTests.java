@@ -0,0 +1,94 @@
+package dataaccess;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrencyLimitTests {
+
+    @Test
+    void neverMoreThanMaxInside() throws InterruptedException {
+        var limit = new ConcurrencyLimit("test", 3, 5_000);
+        var inside = new AtomicInteger();
+        var mostInside = new AtomicInteger();
+        var done = new CountDownLatch(200);
+
+        try (var threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 200; i++) {
+                threads.execute(() -> {
+                    try {
+                        limit.acquire();
+                        try {
+                            mostInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                            Thread.sleep(1);
+                            inside.decrementAndGet();
+                        } finally {
+                            limit.release();
+                        }
+                        done.countDown();
+                    } catch (DataAccessException | InterruptedException e) {
+                        fail(e);
+                    }
+                });
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        }
+
+        assertTrue(mostInside.get() <= 3);
+        assertEquals(3, limit.available());
+    }
+
+    @Test
+    void waitingPastTimeoutFails() throws DataAccessException {
+        var limit = new ConcurrencyLimit("test", 1, 50);
+        limit.acquire();
+
+        var e = assertThrows(DataAccessException.class, limit::acquire);
+        assertEquals("test is busy, try again", e.getMessage());
+
+        limit.release();
+        limit.acquire();
+        assertEquals(0, limit.available());
+    }
+
+    @Test
+    void needsAPermit() {
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimit("test", 0, 50));
+    }
+
+    @Test
+    void closingAConnectionReleasesItsPermitOnce() throws DataAccessException, SQLException {
+        var limit = new ConcurrencyLimit("test", 1, 50);
+        var closes = new AtomicInteger();
+        var pooled = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "close" -> {
+                        closes.incrementAndGet();
+                        yield null;
+                    }
+                    case "getCatalog" -> "chess";
+                    case "isValid" -> throw new SQLException("Expected by the test");
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+
+        limit.acquire();
+        var connection = DatabaseManager.withPermit(pooled, limit);
+        assertEquals("chess", connection.getCatalog());
+        // Checked exceptions from the pooled connection come through unwrapped
+        assertThrows(SQLException.class, () -> connection.isValid(1));
+        assertEquals(0, limit.available());
+
+        connection.close();
+        connection.close();
+        assertEquals(1, closes.get());
+        assertEquals(1, limit.available());
+    }
+}
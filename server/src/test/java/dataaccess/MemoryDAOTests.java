@@ -0,0 +1,108 @@
+package dataaccess;
+
+import chess.ChessGame;
+import model.AuthData;
+import model.GameData;
+import model.UserData;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MemoryDAOTests {
+
+    @Test
+    void gamesAreIndexedByPlayer() throws DataAccessException {
+        var gameDAO = new MemoryGameDAO();
+        gameDAO.createGame(new GameData(1, "alice", "bob", "first", new ChessGame()));
+        gameDAO.createGame(new GameData(2, null, "alice", "second", new ChessGame()));
+
+        assertEquals(2, gameDAO.listGames("alice").size());
+        assertEquals(1, gameDAO.listGames("bob").size());
+
+        gameDAO.updateGame(new GameData(1, "carol", "bob", "first", new ChessGame()));
+        assertEquals(1, gameDAO.listGames("alice").size());
+        assertEquals(1, gameDAO.listGames("carol").size());
+        assertTrue(gameDAO.listGames("nobody").isEmpty());
+    }
+
+    @Test
+    void concurrentUpdatesLeaveNoStalePlayers() throws DataAccessException, InterruptedException {
+        var gameDAO = new MemoryGameDAO();
+        gameDAO.createGame(new GameData(1, null, null, "first", new ChessGame()));
+        var done = new CountDownLatch(4);
+        var pool = Executors.newFixedThreadPool(4);
+        try {
+            for (int t = 0; t < 4; t++) {
+                String player = "player" + t;
+                pool.execute(() -> {
+                    try {
+                        for (int i = 0; i < 500; i++) {
+                            gameDAO.updateGame(new GameData(1, player, null, "first", new ChessGame()));
+                        }
+                    } catch (DataAccessException e) {
+                        fail(e);
+                    }
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdown();
+        }
+
+        String white = gameDAO.getGame(1).whiteUsername();
+        for (int t = 0; t < 4; t++) {
+            String player = "player" + t;
+            assertEquals(player.equals(white) ? 1 : 0, gameDAO.listGames(player).size(), player);
+        }
+    }
+
+    @Test
+    void listingIsASnapshot() throws DataAccessException {
+        var gameDAO = new MemoryGameDAO();
+        gameDAO.createGame(new GameData(1, null, null, "first", new ChessGame()));
+
+        var games = gameDAO.listGames();
+        gameDAO.createGame(new GameData(2, null, null, "second", new ChessGame()));
+        games.clear();
+
+        assertEquals(2, gameDAO.listGames().size());
+    }
+
+    @Test
+    void clashingGameIdIsRejected() throws DataAccessException {
+        var gameDAO = new MemoryGameDAO();
+        gameDAO.createGame(new GameData(1, null, null, "first", new ChessGame()));
+        assertThrows(DataAccessException.class,
+                () -> gameDAO.createGame(new GameData(1, null, null, "other", new ChessGame())));
+    }
+
+    @Test
+    void tokensAreIndexedByUser() throws DataAccessException {
+        var authDAO = new MemoryAuthDAO();
+        authDAO.createAuth(new AuthData("t1", "alice"));
+        authDAO.createAuth(new AuthData("t2", "alice"));
+
+        assertEquals(Set.of("t1", "t2"), authDAO.getTokens("alice"));
+        authDAO.deleteAuth("t1");
+        assertEquals(Set.of("t2"), authDAO.getTokens("alice"));
+        assertThrows(DataAccessException.class, () -> authDAO.getAuth("t1"));
+    }
+
+    @Test
+    void checkUserLooksAtTheRightUser() throws DataAccessException {
+        var userDAO = new MemoryUserDAO();
+        userDAO.createUser(new UserData("alice", "secret", "a@example.com"));
+        userDAO.createUser(new UserData("bob", "hunter2", "b@example.com"));
+
+        assertTrue(userDAO.checkUser("bob", "hunter2"));
+        assertTrue(userDAO.checkUser("alice", "secret"));
+        assertFalse(userDAO.checkUser("bob", "secret"));
+        assertThrows(DataAccessException.class, () -> userDAO.checkUser("carol", "secret"));
+    }
+}
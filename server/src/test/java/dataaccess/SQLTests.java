@@ -2,6 +2,10 @@ package dataaccess;
 
 import chess.ChessGame;
 import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.PackedMove;
+import com.google.gson.Gson;
 import exception.ResponseException;
 import model.AuthData;
 import model.GameData;
@@ -256,6 +260,47 @@ public class SQLTests {
         assertEquals(0, games.size(), "Expected an empty set from listGames()");
     }
 
+    @Test
+    void testLegacyJsonGameKeepsItsPly() throws ResponseException, DataAccessException, SQLException, InvalidMoveException {
+        var legacyGame = new ChessGame();
+        var opening = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        legacyGame.makeMove(opening);
+        legacyGame.setTeamTurn(ChessGame.TeamColor.BLACK);
+
+        // Written the way games were stored before GameCodec, as Gson JSON with no move history
+        try (Connection conn = DatabaseManager.getConnection();
+             var ps = conn.prepareStatement("INSERT INTO Game (gameID, gameName, game) VALUES (?, ?, ?)")) {
+            ps.setInt(1, 42);
+            ps.setString(2, "legacy");
+            ps.setBytes(3, new Gson().toJson(legacyGame).getBytes());
+            ps.executeUpdate();
+        }
 
+        ChessGame loaded = gameDAO.getGame(42).game();
+        assertEquals(1, loaded.getPly());
 
+        var reply = new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null);
+        loaded.makeMove(reply);
+        loaded.setTeamTurn(ChessGame.TeamColor.WHITE);
+        gameDAO.appendMove(42, loaded.getPly(), PackedMove.fromChessMove(reply));
+
+        ChessGame reloaded = gameDAO.getGame(42).game();
+        assertEquals(2, reloaded.getPly());
+        assertEquals(loaded.getBoard(), reloaded.getBoard());
+        assertEquals(ChessGame.TeamColor.WHITE, reloaded.getTeamTurn());
+    }
+
+    @Test
+    void testListGamesSkipsMoveLog() throws ResponseException, DataAccessException, InvalidMoveException {
+        gameDAO.createGame(new GameData(7, "white", "black", "logged", new ChessGame()));
+        ChessGame live = gameDAO.getGame(7).game();
+        var move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        live.makeMove(move);
+        gameDAO.appendMove(7, live.getPly(), PackedMove.fromChessMove(move));
+
+        GameData listed = gameDAO.listGames().iterator().next();
+        assertEquals("logged", listed.gameName());
+        assertEquals(0, listed.game().getPly(), "Listing returns the snapshot");
+        assertEquals(1, gameDAO.getGame(7).game().getPly());
+    }
 }
@@ -0,0 +1,54 @@
+package server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import spark.Spark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VirtualThreadServerTests {
+
+    private Server server;
+    private String previous;
+
+    @BeforeEach
+    void startServer() {
+        previous = System.setProperty("chess.threads", "virtual");
+        server = new Server();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+        if (previous == null) {
+            System.clearProperty("chess.threads");
+        } else {
+            System.setProperty("chess.threads", previous);
+        }
+    }
+
+    @Test
+    void servesRequestsOnVirtualThreads() throws IOException, InterruptedException {
+        int port = server.run(0);
+        // Reports the thread that Jetty handed the request to
+        Spark.get("/test/thread", (request, response) -> Thread.currentThread().isVirtual());
+
+        var client = HttpClient.newHttpClient();
+        var clear = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/db")).DELETE().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, clear.statusCode());
+        assertEquals("{}", clear.body());
+
+        var thread = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/test/thread")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, thread.statusCode());
+        assertEquals("true", thread.body());
+    }
+}
@@ -0,0 +1,368 @@
+package server.websocket;
+
+import chess.ChessBoard;
+import chess.ChessMove;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.Test;
+import websocket.messages.ServerMessage;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionManagerTests {
+
+    private static final Gson GSON = new Gson();
+
+    private final ConnectionManager connections = new ConnectionManager();
+
+    /*
+     * A session that records what is sent to it, open until closed. Async writes
+     * complete straight away unless the session is stalled, in which case their
+     * callbacks wait in pending, like a client on a link that stopped draining.
+     */
+    private static final class FakeSession {
+        final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        final List<WriteCallback> pending = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean closed;
+        volatile boolean stalled;
+        volatile int closeCode;
+        final Session session = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(),
+                new Class<?>[]{Session.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "isOpen" -> !closed;
+                    case "getRemote" -> remote();
+                    case "close" -> {
+                        closed = true;
+                        closeCode = args == null ? 0 : (int) args[0];
+                        yield null;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+
+        private RemoteEndpoint remote() {
+            return (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(),
+                    new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                        if (method.getName().equals("sendString")) {
+                            sent.add((String) args[0]);
+                            if (args.length == 2) {
+                                var callback = (WriteCallback) args[1];
+                                if (stalled) {
+                                    pending.add(callback);
+                                } else {
+                                    callback.writeSuccess();
+                                }
+                            }
+                        }
+                        return null;
+                    });
+        }
+
+        void drain() {
+            stalled = false;
+            while (!pending.isEmpty()) {
+                pending.remove(0).writeSuccess();
+            }
+        }
+    }
+
+    private static ServerMessage note(String text) {
+        return new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION, text);
+    }
+
+    @Test
+    void broadcastSkipsExcludedVisitorAndOtherGames() throws IOException {
+        var alice = new FakeSession();
+        var bob = new FakeSession();
+        var carol = new FakeSession();
+        connections.add(1, "alice", alice.session);
+        connections.add(1, "bob", bob.session);
+        connections.add(2, "carol", carol.session);
+
+        connections.broadcast(1, "alice", note("hello"));
+
+        assertTrue(alice.sent.isEmpty());
+        assertEquals(1, bob.sent.size());
+        assertTrue(carol.sent.isEmpty());
+    }
+
+    @Test
+    void broadcastToOneOnlyReachesThatGame() throws IOException {
+        var first = new FakeSession();
+        var second = new FakeSession();
+        connections.add(1, "alice", first.session);
+        connections.add(2, "alice", second.session);
+
+        connections.broadcastToOne(2, "alice", note("just you"));
+
+        assertTrue(first.sent.isEmpty());
+        assertEquals(1, second.sent.size());
+    }
+
+    @Test
+    void removeDropsVisitorFromEveryGame() throws IOException {
+        var alice = new FakeSession();
+        var bob = new FakeSession();
+        connections.add(1, "alice", alice.session);
+        connections.add(2, "alice", alice.session);
+        connections.add(1, "bob", bob.session);
+
+        connections.remove("alice");
+        connections.broadcast(1, "", note("one"));
+        connections.broadcast(2, "", note("two"));
+
+        assertTrue(alice.sent.isEmpty());
+        assertEquals(1, bob.sent.size());
+        assertEquals(0, connections.connectionCount(2));
+    }
+
+    @Test
+    void rejoiningDoesNotDoubleSend() throws IOException {
+        var alice = new FakeSession();
+        connections.add(1, "alice", alice.session);
+        connections.add(1, "alice", alice.session);
+
+        connections.broadcast(1, "", note("once"));
+
+        assertEquals(1, alice.sent.size());
+    }
+
+    @Test
+    void rejoiningKeepsTheQueueInOrder() throws IOException {
+        var alice = new FakeSession();
+        alice.stalled = true;
+        connections.add(1, "alice", alice.session);
+        connections.broadcast(1, "", note("first"));
+        connections.broadcast(1, "", note("second"));
+
+        connections.add(1, "alice", alice.session, true);
+        connections.broadcast(1, "", note("third"));
+
+        assertEquals(1, alice.sent.size(), "Only the stalled write has reached the socket");
+        alice.drain();
+        assertEquals(3, alice.sent.size());
+        assertTrue(alice.sent.get(0).contains("first"));
+        assertTrue(alice.sent.get(1).contains("second"));
+        assertTrue(alice.sent.get(2).contains("third"));
+    }
+
+    @Test
+    void closedSessionsArePruned() throws IOException {
+        var alice = new FakeSession();
+        var bob = new FakeSession();
+        connections.add(1, "alice", alice.session);
+        connections.add(1, "bob", bob.session);
+        alice.closed = true;
+
+        connections.broadcast(1, "", note("hi"));
+
+        assertEquals(1, connections.connectionCount(1));
+        assertTrue(alice.sent.isEmpty());
+    }
+
+    @Test
+    void broadcastWhileOthersJoinAndLeave() throws InterruptedException {
+        var watcher = new FakeSession();
+        connections.add(1, "watcher", watcher.session);
+        var done = new CountDownLatch(3);
+        var pool = Executors.newFixedThreadPool(3);
+        try {
+            pool.execute(() -> {
+                for (int i = 0; i < 500; i++) {
+                    connections.add(1, "joiner" + i, new FakeSession().session);
+                }
+                done.countDown();
+            });
+            pool.execute(() -> {
+                for (int i = 0; i < 500; i++) {
+                    connections.remove("joiner" + i);
+                }
+                done.countDown();
+            });
+            pool.execute(() -> {
+                try {
+                    for (int i = 0; i < 50; i++) {
+                        connections.broadcast(1, "", note("tick"));
+                    }
+                } catch (IOException e) {
+                    fail(e);
+                }
+                done.countDown();
+            });
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdown();
+        }
+
+        for (int i = 0; i < 500; i++) {
+            connections.remove("joiner" + i);
+        }
+        assertEquals(50, watcher.sent.size());
+        assertEquals(1, connections.connectionCount(1));
+    }
+
+    @Test
+    void broadcastEncodesOnce() throws IOException {
+        var sessions = new ArrayList<FakeSession>();
+        for (int i = 0; i < 50; i++) {
+            var spectator = new FakeSession();
+            sessions.add(spectator);
+            connections.add(4, "spectator" + i, spectator.session);
+        }
+        connections.broadcast(4, "", board());
+
+        var stats = connections.metrics().snapshot(ServerMessage.ServerMessageType.LOAD_GAME);
+        assertEquals(1, stats.encodes());
+        assertEquals(50, stats.sends());
+        String first = sessions.get(0).sent.get(0);
+        for (var spectator : sessions) {
+            assertSame(first, spectator.sent.get(0));
+        }
+    }
+
+    @Test
+    void emptyGameIsNotEncoded() throws IOException {
+        connections.broadcast(9, "", note("nobody here"));
+
+        assertEquals(0, connections.metrics().snapshot(ServerMessage.ServerMessageType.NOTIFICATION).encodes());
+    }
+
+    private static ServerMessage board() {
+        var board = new ChessBoard();
+        board.resetBoard();
+        return new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME, board);
+    }
+
+    @Test
+    void slowSpectatorDoesNotHoldUpPlayers() throws IOException {
+        var white = new FakeSession();
+        var black = new FakeSession();
+        var spectator = new FakeSession();
+        spectator.stalled = true;
+        connections.add(1, "white", white.session);
+        connections.add(1, "black", black.session);
+        connections.add(1, "spectator", spectator.session);
+
+        for (int i = 0; i < 10; i++) {
+            connections.broadcast(1, "", note("move " + i));
+        }
+
+        assertEquals(10, white.sent.size());
+        assertEquals(10, black.sent.size());
+        assertEquals(1, spectator.sent.size());
+        assertEquals(9, connections.queuedMessages());
+
+        spectator.drain();
+        assertEquals(10, spectator.sent.size());
+        assertEquals(0, connections.queuedMessages());
+        var stats = connections.sendMetrics().snapshot(ServerMessage.ServerMessageType.NOTIFICATION);
+        assertEquals(30, stats.sent());
+        assertEquals(9, stats.maxQueueDepth());
+    }
+
+    @Test
+    void queuedBoardsAreSupersededByNewerOnes() throws IOException {
+        var spectator = new FakeSession();
+        spectator.stalled = true;
+        connections.add(1, "spectator", spectator.session);
+
+        connections.broadcast(1, "", board());
+        connections.broadcast(1, "", board());
+        connections.broadcast(1, "", note("check"));
+        connections.broadcast(1, "", board());
+        connections.broadcast(1, "", board());
+
+        // The first board is already being written; of the rest only the newest board is kept
+        assertEquals(2, connections.queuedMessages());
+        assertEquals(2, connections.sendMetrics().snapshot(ServerMessage.ServerMessageType.LOAD_GAME).superseded());
+
+        spectator.drain();
+        assertEquals(3, spectator.sent.size());
+        assertTrue(spectator.sent.get(1).contains("NOTIFICATION"));
+    }
+
+    @Test
+    void queuedBoardIsEncodedBeforeTheGameChanges() throws IOException {
+        var spectator = new FakeSession();
+        spectator.stalled = true;
+        connections.add(1, "spectator", spectator.session);
+        connections.broadcast(1, "", note("busy"));
+
+        var live = new ChessBoard();
+        live.resetBoard();
+        var snapshot = new ChessBoard(live);
+        connections.broadcastToOne(1, "spectator", new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME, live));
+        live.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+
+        spectator.drain();
+        assertEquals(snapshot, GSON.fromJson(spectator.sent.get(1), ServerMessage.class).getGame());
+    }
+
+    @Test
+    void visitorWithFullQueueIsDisconnected() throws IOException {
+        var small = new ConnectionManager(4);
+        var spectator = new FakeSession();
+        var player = new FakeSession();
+        spectator.stalled = true;
+        small.add(1, "spectator", spectator.session);
+        small.add(1, "player", player.session);
+
+        for (int i = 0; i < 6; i++) {
+            small.broadcast(1, "", note("move " + i));
+        }
+
+        assertTrue(spectator.closed);
+        assertEquals(StatusCode.TRY_AGAIN_LATER, spectator.closeCode);
+        assertEquals(1, small.sendMetrics().snapshot(ServerMessage.ServerMessageType.NOTIFICATION).disconnects());
+        assertEquals(6, player.sent.size());
+
+        small.broadcast(1, "", note("after"));
+        assertEquals(1, small.connectionCount(1));
+    }
+
+    @Test
+    void moveUpdatesGoOnlyToVisitorsThatAskedForThem() throws IOException {
+        var classic = new FakeSession();
+        var delta = new FakeSession();
+        connections.add(1, "classic", classic.session);
+        connections.add(1, "delta", delta.session, true);
+
+        var before = new ChessBoard();
+        before.resetBoard();
+        connections.broadcast(1, "", new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME, before));
+
+        var after = new ChessBoard(before);
+        var move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        after.makeMove(move);
+        connections.broadcastMove(1, "white", new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME, after),
+                note("WHITE team moved"), new ServerMessage(move, 1, after.getZobristKey()));
+
+        var classicUpdate = GSON.fromJson(classic.sent.get(1), ServerMessage.class);
+        var deltaUpdate = GSON.fromJson(delta.sent.get(1), ServerMessage.class);
+        assertEquals(ServerMessage.ServerMessageType.LOAD_GAME, classicUpdate.getServerMessageType());
+        assertEquals(ServerMessage.ServerMessageType.MOVE, deltaUpdate.getServerMessageType());
+        assertEquals(3, classic.sent.size());
+        assertEquals(2, delta.sent.size());
+        assertTrue(delta.sent.get(1).length() * 15 < classic.sent.get(1).length() + classic.sent.get(2).length());
+
+        // What the client does: apply the move to the board it was sent, then compare hashes
+        var clientBoard = GSON.fromJson(delta.sent.get(0), ServerMessage.class).getGame();
+        clientBoard.makeMove(deltaUpdate.getMove());
+        assertEquals(1, deltaUpdate.getPly());
+        assertEquals(deltaUpdate.getPositionHash(), clientBoard.getZobristKey());
+        assertEquals(after, clientBoard);
+    }
+}
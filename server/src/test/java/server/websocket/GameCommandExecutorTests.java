@@ -0,0 +1,178 @@
+package server.websocket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameCommandExecutorTests {
+
+    private final GameCommandExecutor executor = new GameCommandExecutor(Executors.newFixedThreadPool(4), 1000);
+
+    @AfterEach
+    void stop() {
+        executor.shutdown();
+    }
+
+    @Test
+    void commandsForOneGameRunInOrder() throws InterruptedException {
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        var done = new CountDownLatch(500);
+        for (int i = 0; i < 500; i++) {
+            int command = i;
+            executor.submit(7, () -> {
+                seen.add(command);
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i, seen.get(i));
+        }
+    }
+
+    @Test
+    void differentGamesRunInParallel() throws InterruptedException {
+        var bothRunning = new CountDownLatch(2);
+        var finished = new CountDownLatch(2);
+        for (int gameID = 1; gameID <= 2; gameID++) {
+            executor.submit(gameID, () -> {
+                bothRunning.countDown();
+                try {
+                    // Only returns if the other game's command is running at the same time
+                    if (bothRunning.await(5, TimeUnit.SECONDS)) {
+                        finished.countDown();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void fullMailboxIsRejected() throws InterruptedException {
+        var smallExecutor = new GameCommandExecutor(Executors.newSingleThreadExecutor(), 2);
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+        try {
+            smallExecutor.submit(1, () -> {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            smallExecutor.submit(1, () -> { });
+            smallExecutor.submit(1, () -> { });
+            assertEquals(2, smallExecutor.queued(1));
+            assertThrows(RejectedExecutionException.class, () -> smallExecutor.submit(1, () -> { }));
+        } finally {
+            release.countDown();
+            smallExecutor.shutdown();
+        }
+    }
+
+    @Test
+    void refusedStartLeavesTheGameUsable() throws InterruptedException {
+        var refuseNext = new boolean[]{true};
+        var pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>()) {
+            @Override
+            public void execute(Runnable command) {
+                if (refuseNext[0]) {
+                    refuseNext[0] = false;
+                    throw new RejectedExecutionException("Shutting down");
+                }
+                super.execute(command);
+            }
+        };
+        var refusingExecutor = new GameCommandExecutor(pool, 10);
+        try {
+            assertThrows(RejectedExecutionException.class, () -> refusingExecutor.submit(1, () -> fail("Was withdrawn")));
+            assertEquals(0, refusingExecutor.queued(1));
+
+            var ran = new CountDownLatch(1);
+            refusingExecutor.submit(1, ran::countDown);
+            assertTrue(ran.await(5, TimeUnit.SECONDS));
+        } finally {
+            refusingExecutor.shutdown();
+        }
+    }
+
+    @Test
+    void failingCommandsDoNotStallTheGame() throws InterruptedException {
+        var release = new CountDownLatch(1);
+        var ran = new CountDownLatch(2);
+        executor.submit(5, () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        // Queued behind the first command, so they all share one drain
+        executor.submit(5, () -> {
+            throw new IllegalStateException("Expected by the test");
+        });
+        executor.submit(5, () -> {
+            throw new Error("Expected by the test");
+        });
+        executor.submit(5, ran::countDown);
+        release.countDown();
+
+        awaitIdle(5);
+        executor.submit(5, ran::countDown);
+        assertTrue(ran.await(5, TimeUnit.SECONDS), "A command after the Error never ran");
+        awaitIdle(5);
+        assertEquals(0, executor.queued(5));
+    }
+
+    private void awaitIdle(int gameID) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.queued(gameID) > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void virtualThreadsKeepGameOrder() throws InterruptedException {
+        var virtualExecutor = GameCommandExecutor.withVirtualThreads(1000);
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        var allVirtual = new boolean[]{true};
+        var done = new CountDownLatch(300);
+        try {
+            for (int i = 0; i < 300; i++) {
+                int command = i;
+                virtualExecutor.submit(3, () -> {
+                    allVirtual[0] &= Thread.currentThread().isVirtual();
+                    seen.add(command);
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        } finally {
+            virtualExecutor.shutdown();
+        }
+
+        assertTrue(allVirtual[0]);
+        for (int i = 0; i < 300; i++) {
+            assertEquals(i, seen.get(i));
+        }
+    }
+}
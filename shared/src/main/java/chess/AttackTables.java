@@ -0,0 +1,108 @@
+package chess;
+
+/**
+ * Precomputed attack masks for every square.
+ * <p>
+ * Knights, kings and pawns use a fixed mask per square. Sliding pieces use
+ * classical ray tables: the ray in each direction is cut off at the first
+ * occupied square, which is found with a single bit scan.
+ */
+final class AttackTables {
+
+    static final int NORTH = 0;
+    static final int EAST = 1;
+    static final int NORTH_EAST = 2;
+    static final int NORTH_WEST = 3;
+    static final int SOUTH = 4;
+    static final int WEST = 5;
+    static final int SOUTH_WEST = 6;
+    static final int SOUTH_EAST = 7;
+
+    // Row and column step for each direction above. The first four move towards higher square indexes.
+    private static final int[][] DIRECTIONS = {
+            {1, 0}, {0, 1}, {1, 1}, {1, -1},
+            {-1, 0}, {0, -1}, {-1, -1}, {-1, 1}
+    };
+
+    private static final int[][] KNIGHT_STEPS = {
+            {1, 2}, {1, -2}, {2, 1}, {2, -1}, {-1, 2}, {-1, -2}, {-2, 1}, {-2, -1}
+    };
+
+    static final long[] KNIGHT_ATTACKS = new long[64];
+    static final long[] KING_ATTACKS = new long[64];
+    // Indexed by TeamColor ordinal, then square
+    static final long[][] PAWN_ATTACKS = new long[2][64];
+    static final long[][] RAYS = new long[8][64];
+    // Squares strictly between two squares on a shared row, column or diagonal, otherwise empty
+    static final long[][] BETWEEN = new long[64][64];
+    // The full row, column or diagonal through two aligned squares, otherwise empty
+    static final long[][] LINE = new long[64][64];
+
+    static {
+        for(int square = 0; square < 64; square++){
+            int row = Bitboards.rowOf(square);
+            int col = Bitboards.columnOf(square);
+
+            for(int[] step : KNIGHT_STEPS){
+                KNIGHT_ATTACKS[square] |= maskOf(row + step[0], col + step[1]);
+            }
+
+            for(int direction = 0; direction < 8; direction++){
+                int[] step = DIRECTIONS[direction];
+                KING_ATTACKS[square] |= maskOf(row + step[0], col + step[1]);
+
+                for(int i = 1; i < 8; i++){
+                    RAYS[direction][square] |= maskOf(row + step[0] * i, col + step[1] * i);
+                }
+            }
+
+            PAWN_ATTACKS[ChessGame.TeamColor.WHITE.ordinal()][square] = maskOf(row + 1, col - 1) | maskOf(row + 1, col + 1);
+            PAWN_ATTACKS[ChessGame.TeamColor.BLACK.ordinal()][square] = maskOf(row - 1, col - 1) | maskOf(row - 1, col + 1);
+        }
+
+        for(int square = 0; square < 64; square++){
+            for(int direction = 0; direction < 8; direction++){
+                int opposite = (direction + 4) % 8;
+                long ray = RAYS[direction][square];
+                while(ray != 0){
+                    int target = Bitboards.lowestSquare(ray);
+                    ray &= ray - 1;
+                    BETWEEN[square][target] = RAYS[direction][square] & RAYS[opposite][target];
+                    LINE[square][target] = RAYS[direction][square] | RAYS[opposite][square] | Bitboards.bit(square);
+                }
+            }
+        }
+    }
+
+    private AttackTables() {
+    }
+
+    private static long maskOf(int row, int col) {
+        return Bitboards.onBoard(row, col) ? Bitboards.bit(Bitboards.squareIndex(row, col)) : 0L;
+    }
+
+    static long rayAttacks(int direction, int square, long occupied) {
+        long ray = RAYS[direction][square];
+        long blockers = ray & occupied;
+        if(blockers == 0){
+            return ray;
+        }
+
+        int firstBlocker = direction < SOUTH ? Bitboards.lowestSquare(blockers) : Bitboards.highestSquare(blockers);
+        return ray ^ RAYS[direction][firstBlocker];
+    }
+
+    static long rookAttacks(int square, long occupied) {
+        return rayAttacks(NORTH, square, occupied) | rayAttacks(EAST, square, occupied)
+                | rayAttacks(SOUTH, square, occupied) | rayAttacks(WEST, square, occupied);
+    }
+
+    static long bishopAttacks(int square, long occupied) {
+        return rayAttacks(NORTH_EAST, square, occupied) | rayAttacks(NORTH_WEST, square, occupied)
+                | rayAttacks(SOUTH_EAST, square, occupied) | rayAttacks(SOUTH_WEST, square, occupied);
+    }
+
+    static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+}
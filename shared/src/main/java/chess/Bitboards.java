@@ -0,0 +1,55 @@
+package chess;
+
+/**
+ * Helpers for working with 64-bit bitboards.
+ * <p>
+ * Square 0 is row 1, column 1 (a1) and square 63 is row 8, column 8 (h8),
+ * so a square index is {@code (row - 1) * 8 + (column - 1)}.
+ */
+public final class Bitboards {
+
+    private Bitboards() {
+    }
+
+    public static int squareIndex(int row, int col) {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    public static int squareIndex(ChessPosition position) {
+        return squareIndex(position.getRow(), position.getColumn());
+    }
+
+    public static int rowOf(int square) {
+        return (square >>> 3) + 1;
+    }
+
+    public static int columnOf(int square) {
+        return (square & 7) + 1;
+    }
+
+    public static ChessPosition toPosition(int square) {
+        return ChessPosition.of(rowOf(square), columnOf(square));
+    }
+
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    public static boolean onBoard(int row, int col) {
+        return row >= 1 && row <= 8 && col >= 1 && col <= 8;
+    }
+
+    /**
+     * @return the index of the lowest set square, or 64 if the board is empty
+     */
+    public static int lowestSquare(long bitboard) {
+        return Long.numberOfTrailingZeros(bitboard);
+    }
+
+    /**
+     * @return the index of the highest set square, or -1 if the board is empty
+     */
+    public static int highestSquare(long bitboard) {
+        return 63 - Long.numberOfLeadingZeros(bitboard);
+    }
+}
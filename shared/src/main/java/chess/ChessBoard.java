@@ -1,6 +1,8 @@
 package chess;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Objects;
 
 /**
@@ -8,11 +10,40 @@ import java.util.Objects;
  * <p>
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
+ * <p>
+ * Alongside the square array the board keeps one bitboard per piece type and
+ * color plus occupancy masks, so lookups like finding the king or counting a
+ * team's pieces are bit operations instead of scans over all 64 squares. It
+ * also keeps a Zobrist key of the piece placement, which backs hashCode.
  */
 public class ChessBoard {
     private ChessPiece[][] squares = new ChessPiece[8][8];
+
+    // Derived from squares and rebuilt whenever squares is replaced (for example by Gson)
+    private transient long[] pieceBoards = new long[12];
+    private transient long[] colorBoards = new long[2];
+    private transient ChessPiece[][] indexedSquares = squares;
+    private transient long zobristKey;
+
     public ChessBoard() {
-        
+
+    }
+
+    /**
+     * Creates an independent copy of a board. Pieces are immutable, so they are
+     * shared between the two boards.
+     *
+     * @param other the board to copy
+     */
+    public ChessBoard(ChessBoard other) {
+        other.ensureIndexed();
+        for(int row = 0; row < 8; row++){
+            squares[row] = other.squares[row].clone();
+        }
+        pieceBoards = other.pieceBoards.clone();
+        colorBoards = other.colorBoards.clone();
+        zobristKey = other.zobristKey;
+        indexedSquares = squares;
     }
 
     /**
@@ -22,7 +53,8 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        squares[position.getRow() - 1][position.getColumn() - 1] = piece;
+        ensureIndexed();
+        place(Bitboards.squareIndex(position), piece);
     }
 
     /**
@@ -43,45 +75,250 @@ public class ChessBoard {
      */
     public void resetBoard() {
         squares = new ChessPiece[8][8];
+        ensureIndexed();
         addPawns();
         addBackRows();
 
     }
 
     public void addPawns(){
-        for(int i = 0; i < 8; i++){
-            squares[1][i] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
-            squares[6][i] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
+        for(int i = 1; i <= 8; i++){
+            addPiece(ChessPosition.of(2, i), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+            addPiece(ChessPosition.of(7, i), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
         }
     }
 
     public void addBackRows(){
-        for(int i = 0; i < 8; i++){
-            if(i == 0 || i == 7){
-                squares[0][i] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK);
-                squares[7][i] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK);
-            } else if (i == 1 || i == 6) {
-                squares[0][i] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT);
-                squares[7][i] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT);
-
-            } else if (i == 2 || i == 5) {
-                squares[0][i] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP);
-                squares[7][i] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP);
-            } else if (i == 3) {
-                squares[0][i] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN);
-                squares[7][i] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN);
-
-            }else{
-                squares[0][i] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING);
-                squares[7][i] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING);
+        ChessPiece.PieceType[] backRow = {
+                ChessPiece.PieceType.ROOK, ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.BISHOP,
+                ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.KING, ChessPiece.PieceType.BISHOP,
+                ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.ROOK
+        };
+
+        for(int i = 1; i <= 8; i++){
+            addPiece(ChessPosition.of(1, i), new ChessPiece(ChessGame.TeamColor.WHITE, backRow[i - 1]));
+            addPiece(ChessPosition.of(8, i), new ChessPiece(ChessGame.TeamColor.BLACK, backRow[i - 1]));
+        }
+    }
+
+    public void removePiece(ChessPosition position) {
+        addPiece(position, null);
+    }
+
+    /**
+     * Moves a piece without checking that the move is legal, promoting it if the
+     * move names a promotion piece
+     *
+     * @param move the move to make
+     * @return a record that {@link #unmakeMove(MoveUndo)} uses to restore the board
+     */
+    public MoveUndo makeMove(ChessMove move) {
+        ensureIndexed();
+        int from = Bitboards.squareIndex(move.getStartPosition());
+        int to = Bitboards.squareIndex(move.getEndPosition());
+        ChessPiece moved = squares[from >>> 3][from & 7];
+        ChessPiece captured = squares[to >>> 3][to & 7];
+        ChessPiece.PieceType promotion = null;
+
+        ChessPiece placed = moved;
+        if(move.getPromotionPiece() != null && moved.getPieceType() == ChessPiece.PieceType.PAWN){
+            promotion = move.getPromotionPiece();
+            placed = new ChessPiece(moved.getTeamColor(), promotion);
+        }
+
+        place(from, null);
+        place(to, placed);
+        return new MoveUndo(from, to, moved, captured, promotion);
+    }
+
+    /**
+     * Takes back a move made with {@link #makeMove(ChessMove)}. Moves must be
+     * taken back in the reverse order they were made.
+     */
+    public void unmakeMove(MoveUndo undo) {
+        ensureIndexed();
+        place(undo.to(), undo.captured());
+        place(undo.from(), undo.moved());
+    }
+
+    /**
+     * Moves a piece given as a {@link PackedMove} without checking that the move
+     * is legal. Unlike {@link #makeMove(ChessMove)} nothing is allocated unless
+     * the move promotes, and promotion bits are trusted to only be set on pawn moves.
+     *
+     * @param move the packed move to make
+     * @return the captured piece, or null; pass it to {@link #unmakeMove(int, ChessPiece)}
+     */
+    public ChessPiece makeMove(int move) {
+        ensureIndexed();
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        ChessPiece moved = squares[from >>> 3][from & 7];
+        ChessPiece captured = squares[to >>> 3][to & 7];
+
+        ChessPiece placed = moved;
+        if(PackedMove.isPromotion(move)){
+            placed = new ChessPiece(moved.getTeamColor(), PackedMove.promotion(move));
+        }
+
+        place(from, null);
+        place(to, placed);
+        return captured;
+    }
+
+    /**
+     * Takes back a packed move made with {@link #makeMove(int)}
+     *
+     * @param move     the move that was made
+     * @param captured the piece makeMove returned
+     */
+    public void unmakeMove(int move, ChessPiece captured) {
+        ensureIndexed();
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        ChessPiece moved = squares[to >>> 3][to & 7];
+        if(PackedMove.isPromotion(move)){
+            moved = new ChessPiece(moved.getTeamColor(), ChessPiece.PieceType.PAWN);
+        }
+
+        place(to, captured);
+        place(from, moved);
+    }
+
+    /**
+     * @return the piece on the given square index, or null if it is empty
+     */
+    ChessPiece pieceAt(int square) {
+        return squares[square >>> 3][square & 7];
+    }
+
+    /**
+     * @return bitboard of the squares holding the given team's pieces of the given type
+     */
+    public long getPieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        ensureIndexed();
+        return pieceBoards[pieceIndex(color, type)];
+    }
+
+    /**
+     * @return bitboard of the squares holding any of the given team's pieces
+     */
+    public long getOccupancy(ChessGame.TeamColor color) {
+        ensureIndexed();
+        return colorBoards[color.ordinal()];
+    }
+
+    /**
+     * @return bitboard of every occupied square
+     */
+    public long getOccupancy() {
+        ensureIndexed();
+        return colorBoards[0] | colorBoards[1];
+    }
+
+    /**
+     * @return the square of the given team's king, or null if it has no king on the board
+     */
+    public ChessPosition kingPosition(ChessGame.TeamColor color) {
+        long king = getPieces(color, ChessPiece.PieceType.KING);
+        return king == 0 ? null : Bitboards.toPosition(Bitboards.lowestSquare(king));
+    }
+
+    public int pieceCount(ChessGame.TeamColor color) {
+        return Long.bitCount(getOccupancy(color));
+    }
+
+    public Collection<ChessPosition> teamPositions(ChessGame.TeamColor color) {
+        long pieces = getOccupancy(color);
+        Collection<ChessPosition> positions = new ArrayList<>(Long.bitCount(pieces));
+
+        while(pieces != 0){
+            positions.add(Bitboards.toPosition(Bitboards.lowestSquare(pieces)));
+            pieces &= pieces - 1;
+        }
+
+        return positions;
+    }
+
+    /**
+     * Determines if any piece of the given team attacks a square, whether or not
+     * the square is empty
+     *
+     * @param position the square to test
+     * @param byColor  the attacking team
+     * @return True if at least one piece of byColor attacks the square
+     */
+    public boolean isSquareAttacked(ChessPosition position, ChessGame.TeamColor byColor) {
+        return MoveGenerator.isSquareAttacked(this, Bitboards.squareIndex(position), byColor, getOccupancy());
+    }
+
+    /**
+     * @return the Zobrist key of the pieces on the board, kept up to date on every change
+     */
+    public long getZobristKey() {
+        ensureIndexed();
+        return zobristKey;
+    }
+
+    /**
+     * Recomputes the Zobrist key from scratch. Used to cross-check the
+     * incrementally maintained key.
+     */
+    long computeZobristKey() {
+        long key = 0;
+        for(int square = 0; square < 64; square++){
+            ChessPiece piece = squares[square >>> 3][square & 7];
+            if(piece != null){
+                key ^= Zobrist.PIECE_SQUARE[pieceIndex(piece.getTeamColor(), piece.getPieceType())][square];
             }
+        }
+        return key;
+    }
 
+    static int pieceIndex(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * 6 + type.ordinal();
+    }
+
+    private void place(int square, ChessPiece piece) {
+        unindex(squares[square >>> 3][square & 7], square);
+        squares[square >>> 3][square & 7] = piece;
+        index(piece, square);
+    }
 
+    private void index(ChessPiece piece, int square) {
+        if(piece != null){
+            int pieceIndex = pieceIndex(piece.getTeamColor(), piece.getPieceType());
+            pieceBoards[pieceIndex] |= 1L << square;
+            colorBoards[piece.getTeamColor().ordinal()] |= 1L << square;
+            zobristKey ^= Zobrist.PIECE_SQUARE[pieceIndex][square];
         }
     }
 
-    public void removePiece(ChessPosition position) {
-        squares[position.getRow() - 1][position.getColumn() - 1] = null;
+    private void unindex(ChessPiece piece, int square) {
+        if(piece != null){
+            int pieceIndex = pieceIndex(piece.getTeamColor(), piece.getPieceType());
+            pieceBoards[pieceIndex] &= ~(1L << square);
+            colorBoards[piece.getTeamColor().ordinal()] &= ~(1L << square);
+            zobristKey ^= Zobrist.PIECE_SQUARE[pieceIndex][square];
+        }
+    }
+
+    /**
+     * Rebuilds the bitboards if the square array was swapped out from under them,
+     * which happens after a reset or when Gson fills in a deserialized board.
+     */
+    private void ensureIndexed() {
+        if(indexedSquares == squares && pieceBoards != null){
+            return;
+        }
+
+        pieceBoards = new long[12];
+        colorBoards = new long[2];
+        zobristKey = 0;
+        for(int square = 0; square < 64; square++){
+            index(squares[square >>> 3][square & 7], square);
+        }
+        indexedSquares = squares;
     }
 
     @Override
@@ -100,11 +337,12 @@ public class ChessBoard {
             return false;
         }
         ChessBoard that = (ChessBoard) o;
-        return Objects.deepEquals(squares, that.squares);
+        return getZobristKey() == that.getZobristKey() && Objects.deepEquals(squares, that.squares);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(squares);
+        assert getZobristKey() == computeZobristKey() : "Zobrist key out of sync with the squares";
+        return Long.hashCode(getZobristKey());
     }
 }
@@ -1,7 +1,9 @@
 package chess;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
 
 /**
@@ -17,11 +19,27 @@ public class ChessGame {
     private int moveCount = 0;
     private boolean used;
     private boolean gameFinished = false;
+    // Moves since the last capture or pawn move, for the fifty-move rule
+    private int halfmoveClock = 0;
+    private transient Deque<Undo> undoStack = new ArrayDeque<>();
+    // Every move made since the game started or its board was last set, as packed moves
+    private transient MoveList history = new MoveList(64);
+
+    // What unmakeMove needs to restore: the board change and the clock before the move
+    private record Undo(MoveUndo board, int halfmoveClock) {
+    }
 
     public ChessGame() {
         board.resetBoard();
     }
 
+    /**
+     * Creates a game on the given board without setting up the starting position
+     */
+    ChessGame(ChessBoard board) {
+        this.board = board;
+    }
+
     /**
      * @return Which team's turn it is
      */
@@ -55,29 +73,11 @@ public class ChessGame {
      * startPosition
      */
     public Collection<ChessMove> validMoves(ChessPosition startPosition) {
-        ChessPiece myPiece = getBoard().getPiece(startPosition);
-        if(myPiece == null){
+        if(board.getPiece(startPosition) == null){
             return null;
         }
 
-        Collection<ChessMove> possibleMoves;
-        possibleMoves = myPiece.pieceMoves(getBoard(), startPosition);
-        TeamColor color = myPiece.getTeamColor();
-
-        possibleMoves.removeIf(move -> willBeInCheck(color, move, myPiece));
-
-        if(myPiece.getPieceType() == ChessPiece.PieceType.KING){
-            Collection<ChessMove> enemyMoves = possibleEnemyMoves(board, color);
-            for(ChessMove enemy : enemyMoves){
-                possibleMoves.removeIf(move -> move.getEndPosition().equals(enemy.getEndPosition()));
-            }
-        }
-
-        if(isInCheck(teamColor) && myPiece.getPieceType() != ChessPiece.PieceType.KING){
-            possibleMoves.removeIf(move -> willBeInCheck(color, move, myPiece));
-        }
-
-        return possibleMoves;
+        return MoveGenerator.legalMoves(board, startPosition);
     }
 
     /**
@@ -88,48 +88,45 @@ public class ChessGame {
      */
     public void makeMove(ChessMove move) throws InvalidMoveException {
 
-        try {
-            Collection<ChessMove> valid = validMoves(move.getStartPosition());
-        } catch (NullPointerException e) {
+        ChessPiece myPiece = board.getPiece(move.getStartPosition());
+        if(myPiece == null){
             throw new InvalidMoveException();
         }
 
-        if(moveCount == 0 && !used && teamColor == TeamColor.BLACK){
+        if(moveCount == 0 && !used && myPiece.getTeamColor() != teamColor){
             throw new InvalidMoveException();
         }
 
-        Collection<ChessMove> valid = validMoves(move.getStartPosition());
-
-        if(valid == null){
+        if(!validMoves(move.getStartPosition()).contains(move)){
             throw new InvalidMoveException();
         }
 
-        boolean isValid = false;
-
-        for(ChessMove validMove : valid){
-            if(validMove.equals(move)){
-                isValid = true;
-                break;
-            }
-        }
-
-        if(!isValid){
-            throw new InvalidMoveException();
+        MoveUndo undo = board.makeMove(move);
+        undoStack.push(new Undo(undo, halfmoveClock));
+        history.add(PackedMove.fromChessMove(move) | (undo.captured() != null ? PackedMove.CAPTURE : 0));
+        if(undo.captured() != null || myPiece.getPieceType() == ChessPiece.PieceType.PAWN){
+            halfmoveClock = 0;
+        }else{
+            halfmoveClock ++;
         }
+        moveCount ++;
+    }
 
-        if((move.getEndPosition().getRow() == 8 || move.getEndPosition().getRow() == 1) &&
-                board.getPiece(move.getStartPosition()).getPieceType() == ChessPiece.PieceType.PAWN){
-            TeamColor pieceColor = board.getPiece(move.getStartPosition()).getTeamColor();
-            ChessPiece promotion = new ChessPiece(pieceColor, move.getPromotionPiece());
-            board.addPiece(new ChessPosition(move.getEndPosition().getRow(), move.getEndPosition().getColumn()), promotion);;
-            board.removePiece(move.getStartPosition());
-        }else{
-            board.addPiece(new ChessPosition(move.getEndPosition().getRow(),
-                    move.getEndPosition().getColumn()), board.getPiece(move.getStartPosition()));;
-            board.removePiece(move.getStartPosition());
+    /**
+     * Takes back the last move made with {@link #makeMove(ChessMove)}
+     *
+     * @throws InvalidMoveException if there is no move to take back
+     */
+    public void unmakeMove() throws InvalidMoveException {
+        if(undoStack.isEmpty()){
+            throw new InvalidMoveException("No move to take back");
         }
 
-        moveCount ++;
+        Undo undo = undoStack.pop();
+        board.unmakeMove(undo.board());
+        history.removeLast();
+        halfmoveClock = undo.halfmoveClock();
+        moveCount --;
     }
 
     /**
@@ -139,16 +136,24 @@ public class ChessGame {
      * @return True if the specified team is in check
      */
     public boolean isInCheck(TeamColor teamColor) {
+        long king = board.getPieces(teamColor, ChessPiece.PieceType.KING);
+        if(king == 0){
+            return false;
+        }
 
-        ChessPosition kingPosition = kingPosition(teamColor);
-        Collection<ChessMove> enemyMoves = possibleEnemyMoves(board, teamColor);
+        int kingSquare = Bitboards.lowestSquare(king);
+        return MoveGenerator.isSquareAttacked(board, kingSquare, MoveGenerator.opponent(teamColor), board.getOccupancy());
+    }
 
-        for(ChessMove possibleMove : enemyMoves){
-            if(possibleMove.getEndPosition().equals(kingPosition)){
-                return true;
-            }
-        }
-        return false;
+    /**
+     * Determines if any piece of the given team attacks a square
+     *
+     * @param position the square to test
+     * @param byColor  the attacking team
+     * @return True if at least one piece of byColor attacks the square
+     */
+    public boolean isSquareAttacked(ChessPosition position, TeamColor byColor) {
+        return board.isSquareAttacked(position, byColor);
     }
 
     /**
@@ -158,36 +163,43 @@ public class ChessGame {
      * @return True if the specified team is in checkmate
      */
     public boolean isInCheckmate(TeamColor teamColor) {
-
-        ChessPosition kingPosition = kingPosition(teamColor);
-        Collection<ChessPosition> test = teamsPosition(teamColor);
-
-        for(ChessPosition position : test){
-            if(!validMoves(position).isEmpty()){
-                return false;
-            }
-        }
-
-
-        return isInCheck(teamColor) && validMoves(kingPosition).isEmpty();
-
+        return getGameState(teamColor) == GameState.CHECKMATE;
     }
 
     /**
      * Determines if the given team is in stalemate, which here is defined as having
-     * no valid moves
+     * no valid moves while not in check
      *
      * @param teamColor which team to check for stalemate
      * @return True if the specified team is in stalemate, otherwise false
      */
     public boolean isInStalemate(TeamColor teamColor) {
-        int numberOfPieces = numberOfPiecesLeft(teamColor);
+        return getGameState(teamColor) == GameState.STALEMATE;
+    }
 
-        if(numberOfPieces == 1){
-            return validMoves(kingPosition(teamColor)).isEmpty();
+    /**
+     * Works out whether the given team is in check, checkmate or stalemate with a
+     * single check test and at most one pass of legal move generation
+     *
+     * @param teamColor which team to examine
+     * @return the team's current state
+     */
+    public GameState getGameState(TeamColor teamColor) {
+        boolean inCheck = isInCheck(teamColor);
+        if(MoveGenerator.hasLegalMove(board, teamColor)){
+            return inCheck ? GameState.CHECK : GameState.NORMAL;
         }
+        return inCheck ? GameState.CHECKMATE : GameState.STALEMATE;
+    }
 
-        return false;
+    /**
+     * The possible states of a team after a move
+     */
+    public enum GameState {
+        NORMAL,
+        CHECK,
+        CHECKMATE,
+        STALEMATE
     }
 
     /**
@@ -197,6 +209,8 @@ public class ChessGame {
      */
     public void setBoard(ChessBoard board) {
         this.board = board;
+        undoStack.clear();
+        history.clear();
     }
 
     /**
@@ -208,108 +222,153 @@ public class ChessGame {
         return board;
     }
 
-    public ChessPosition kingPosition(TeamColor teamColor){
-        for(int i = 1; i <= 8; i++){
-            for(int k = 1; k <= 8; k ++){
-                if(board.getPiece(new ChessPosition(i,k)) == null){
-                    continue;
-                }
-                if((board.getPiece(new ChessPosition(i,k)).getPieceType() == ChessPiece.PieceType.KING) &&
-                        (board.getPiece(new ChessPosition(i,k)).getTeamColor() == teamColor)){
-                    return new ChessPosition(i,k);
-                }
-            }
-        }
-        return null;
+    /**
+     * @return a Zobrist key identifying the piece placement and the side to move
+     */
+    public long getPositionKey(){
+        long key = board.getZobristKey();
+        return teamColor == TeamColor.BLACK ? key ^ Zobrist.BLACK_TO_MOVE : key;
     }
 
-    public Collection<ChessMove> possibleEnemyMoves(ChessBoard board, TeamColor teamColor){
-        Collection<ChessMove> possibleMove = new ArrayList<>(List.of());
-        Collection<ChessMove> possibleMove1;
-
-        for(int i = 1; i <= 8; i++){
-            for(int k = 1; k <= 8; k ++){
-                if(board.getPiece(new ChessPosition(i,k)) == null){
-                    continue;
-                }
-                if((board.getPiece(new ChessPosition(i,k)).getTeamColor() != teamColor)){
-                    possibleMove1 = board.getPiece(new ChessPosition(i,k)).pieceMoves(board, new ChessPosition(i,k));
-
-                    possibleMove.addAll(possibleMove1);
-                }
-            }
+    /**
+     * @return the number of moves since the last capture or pawn move
+     */
+    public int getHalfmoveClock(){
+        return halfmoveClock;
+    }
+
+    /**
+     * @return the moves played in this game, oldest first
+     */
+    public List<ChessMove> getMoveHistory(){
+        List<ChessMove> moves = new ArrayList<>(history.size());
+        history.addTo(moves);
+        return moves;
+    }
+
+    /**
+     * @return the number of moves made in this game, which is also the ply of the last move.
+     * Unlike the history it is saved with the game and kept when the board is set, so
+     * it can key a move log across games loaded from older saves.
+     */
+    public int getPly(){
+        return moveCount;
+    }
+
+    /**
+     * Plays a move read back from a move log, such as the one stored for a game on
+     * the server, and passes the turn to the other team like a live move would
+     *
+     * @param packedMove the move as written by {@link PackedMove}
+     * @throws InvalidMoveException if the move is not legal in the current position
+     */
+    public void replay(int packedMove) throws InvalidMoveException {
+        ChessMove move = PackedMove.toChessMove(packedMove);
+        ChessPiece piece = board.getPiece(move.getStartPosition());
+        if(piece == null){
+            throw new InvalidMoveException("No piece to replay " + PackedMove.toString(packedMove));
         }
 
-        return possibleMove;
+        makeMove(move);
+        setTeamTurn(MoveGenerator.opponent(piece.getTeamColor()));
+    }
 
+    MoveList history(){
+        return history;
     }
 
-    public boolean willBeInCheck(TeamColor teamColor, ChessMove move, ChessPiece myPiece) {
+    int getMoveCount(){
+        return moveCount;
+    }
+
+    boolean isTurnSet(){
+        return used;
+    }
+
+    /**
+     * Restores the turn and move state read back by {@link GameCodec}
+     */
+    void restoreState(TeamColor teamColor, boolean used, boolean gameFinished, int moveCount, int halfmoveClock){
         this.teamColor = teamColor;
+        this.used = used;
+        this.gameFinished = gameFinished;
+        this.moveCount = moveCount;
+        this.halfmoveClock = halfmoveClock;
+    }
 
-        ChessPiece toSave = null;
+    /**
+     * Writes the current position as FEN, such as
+     * {@code rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b - - 0 1}.
+     * Castling and en passant are not part of this game, so both fields are always {@code -}.
+     *
+     * @return the position in Forsyth-Edwards Notation
+     */
+    public String toFen(){
+        return Fen.write(board, teamColor, halfmoveClock, moveCount / 2 + 1);
+    }
 
-        boolean pieceToSave = false;
-        if(board.getPiece(move.getEndPosition()) != null){
-            toSave = board.getPiece(move.getEndPosition());
-            pieceToSave = true;
-        }
+    /**
+     * Creates a game from a FEN string. The move clocks may be left off, in
+     * which case they start at 0 and 1. Castling rights and the en passant
+     * square are checked but otherwise ignored.
+     *
+     * @param fen the position in Forsyth-Edwards Notation
+     * @return a game set up in that position
+     * @throws IllegalArgumentException if the string is not valid FEN
+     */
+    public static ChessGame fromFen(String fen){
+        Fen.Position position = Fen.read(fen);
+        ChessGame game = new ChessGame();
+        game.setBoard(position.board());
+        game.setTeamTurn(position.toMove());
+        game.halfmoveClock = position.halfmoveClock();
+        game.moveCount = (position.fullmoveNumber() - 1) * 2 + (position.toMove() == TeamColor.BLACK ? 1 : 0);
+        return game;
+    }
 
-        board.removePiece(move.getStartPosition());
-        board.addPiece(move.getEndPosition(), myPiece);
-
-        ChessPosition kingPosition = kingPosition(teamColor);
-        Collection<ChessMove> enemyMoves = possibleEnemyMoves(board, teamColor);
-
-        for(ChessMove possibleMove : enemyMoves){
-            if(possibleMove.getEndPosition().equals(kingPosition)){
-                board.removePiece(move.getEndPosition());
-                board.addPiece(move.getStartPosition(), myPiece);
-                if(pieceToSave){
-                    board.addPiece(move.getEndPosition(), toSave);
-                }
-                return true;
-            }
-        }
-        board.removePiece(move.getEndPosition());
-        board.addPiece(move.getStartPosition(), myPiece);
-        if(pieceToSave){
-            board.addPiece(move.getEndPosition(), toSave);
-        }
-        return false;
+    public ChessPosition kingPosition(TeamColor teamColor){
+        return board.kingPosition(teamColor);
     }
 
     public int numberOfPiecesLeft(TeamColor teamColor){
-        int numberOfPieces = 0;
-
+        return board.pieceCount(teamColor);
+    }
 
-        for(int i = 1; i <= 8; i++){
-            for(int k = 1; k <= 8; k ++){
-                if(board.getPiece(new ChessPosition(i,k)) != null){
-                    if((board.getPiece(new ChessPosition(i,k)).getTeamColor() == teamColor)){
-                        numberOfPieces++;
-                    }
-                }
-            }
-        }
+    public Collection<ChessPosition> teamsPosition(TeamColor teamColor){
+        return board.teamPositions(teamColor);
+    }
 
-        return numberOfPieces;
+    /**
+     * @return every pseudo-legal move of the team opposing teamColor on the given board
+     */
+    public Collection<ChessMove> possibleEnemyMoves(ChessBoard board, TeamColor teamColor){
+        Collection<ChessMove> possibleMove = new ArrayList<>();
+        MoveGenerator.generateMoves(board, MoveGenerator.opponent(teamColor), possibleMove);
+        return possibleMove;
     }
 
-    public Collection<ChessPosition> teamsPosition(TeamColor teamColor){
-        Collection<ChessPosition> positions = new ArrayList<>();
-
-        for(int i = 1; i <= 8; i++){
-            for(int k = 1; k <= 8; k ++){
-                if(board.getPiece(new ChessPosition(i,k)) != null){
-                    if((board.getPiece(new ChessPosition(i,k)).getTeamColor() == teamColor)){
-                        positions.add(new ChessPosition(i,k));
-                    }
-                }
-            }
+    /**
+     * Tries the move on the board and takes it back again
+     *
+     * @param myPiece the piece to move from the start square, in place of whatever is
+     *                there now; null moves the board's own piece
+     * @return True if the move would leave teamColor in check
+     */
+    public boolean willBeInCheck(TeamColor teamColor, ChessMove move, ChessPiece myPiece) {
+        ChessPosition start = move.getStartPosition();
+        ChessPiece original = board.getPiece(start);
+        if(myPiece != null){
+            board.addPiece(start, myPiece);
         }
 
-        return positions;
+        MoveUndo undo = board.makeMove(move);
+        boolean inCheck = isInCheck(teamColor);
+        board.unmakeMove(undo);
+
+        if(myPiece != null){
+            board.addPiece(start, original);
+        }
+        return inCheck;
     }
 
     public boolean checkGameStatus(){
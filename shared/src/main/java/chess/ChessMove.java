@@ -70,6 +70,8 @@ public class ChessMove {
 
     @Override
     public int hashCode() {
-        return Objects.hash(startPosition, endPosition, promotionPiece);
+        int result = startPosition == null ? 0 : startPosition.hashCode();
+        result = 31 * result + (endPosition == null ? 0 : endPosition.hashCode());
+        return 31 * result + (promotionPiece == null ? 0 : promotionPiece.ordinal() + 1);
     }
 }
@@ -0,0 +1,151 @@
+package chess;
+
+/**
+ * Reads and writes Forsyth-Edwards Notation.
+ * <p>
+ * This engine has no castling or en passant, so those fields are always
+ * written as {@code -}. When reading they are checked for valid syntax
+ * and otherwise ignored.
+ */
+final class Fen {
+
+    private Fen() {
+    }
+
+    static String write(ChessBoard board, ChessGame.TeamColor toMove, int halfmoveClock, int fullmoveNumber) {
+        StringBuilder fen = new StringBuilder(64);
+        for(int row = 8; row >= 1; row--){
+            int empty = 0;
+            for(int col = 1; col <= 8; col++){
+                ChessPiece piece = board.getPiece(ChessPosition.of(row, col));
+                if(piece == null){
+                    empty++;
+                    continue;
+                }
+                if(empty > 0){
+                    fen.append(empty);
+                    empty = 0;
+                }
+                fen.append(pieceChar(piece));
+            }
+            if(empty > 0){
+                fen.append(empty);
+            }
+            if(row > 1){
+                fen.append('/');
+            }
+        }
+
+        fen.append(toMove == ChessGame.TeamColor.WHITE ? " w" : " b");
+        fen.append(" - - ").append(halfmoveClock).append(' ').append(fullmoveNumber);
+        return fen.toString();
+    }
+
+    /**
+     * The fields of a parsed FEN string
+     */
+    record Position(ChessBoard board, ChessGame.TeamColor toMove, int halfmoveClock, int fullmoveNumber) {
+    }
+
+    /**
+     * @throws IllegalArgumentException if the string is not valid FEN
+     */
+    static Position read(String fen) {
+        if(fen == null){
+            throw new IllegalArgumentException("FEN is null");
+        }
+
+        String[] fields = fen.trim().split("\\s+");
+        if(fields.length != 4 && fields.length != 6){
+            throw new IllegalArgumentException("FEN needs 4 or 6 fields: " + fen);
+        }
+
+        ChessBoard board = readPlacement(fields[0]);
+        ChessGame.TeamColor toMove = switch (fields[1]) {
+            case "w" -> ChessGame.TeamColor.WHITE;
+            case "b" -> ChessGame.TeamColor.BLACK;
+            default -> throw new IllegalArgumentException("Bad side to move: " + fields[1]);
+        };
+
+        if(!fields[2].matches("-|K?Q?k?q?") || fields[2].isEmpty()){
+            throw new IllegalArgumentException("Bad castling field: " + fields[2]);
+        }
+        if(!fields[3].matches("-|[a-h][36]")){
+            throw new IllegalArgumentException("Bad en passant field: " + fields[3]);
+        }
+
+        int halfmoveClock = 0;
+        int fullmoveNumber = 1;
+        if(fields.length == 6){
+            halfmoveClock = readNumber(fields[4], 0);
+            fullmoveNumber = readNumber(fields[5], 1);
+        }
+        return new Position(board, toMove, halfmoveClock, fullmoveNumber);
+    }
+
+    private static ChessBoard readPlacement(String placement) {
+        String[] rows = placement.split("/", -1);
+        if(rows.length != 8){
+            throw new IllegalArgumentException("FEN placement needs 8 rows: " + placement);
+        }
+
+        ChessBoard board = new ChessBoard();
+        for(int i = 0; i < 8; i++){
+            int row = 8 - i;
+            int col = 1;
+            for(char c : rows[i].toCharArray()){
+                if(c >= '1' && c <= '8'){
+                    col += c - '0';
+                }else{
+                    if(col > 8){
+                        throw new IllegalArgumentException("Too many squares in row " + row + ": " + rows[i]);
+                    }
+                    board.addPiece(ChessPosition.of(row, col), readPiece(c));
+                    col++;
+                }
+            }
+            if(col != 9){
+                throw new IllegalArgumentException("Row " + row + " does not have 8 squares: " + rows[i]);
+            }
+        }
+        return board;
+    }
+
+    private static int readNumber(String field, int min) {
+        try {
+            int value = Integer.parseInt(field);
+            if(value < min){
+                throw new IllegalArgumentException("FEN counter out of range: " + field);
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("FEN counter is not a number: " + field);
+        }
+    }
+
+    private static char pieceChar(ChessPiece piece) {
+        char c = switch (piece.getPieceType()) {
+            case KING -> 'k';
+            case QUEEN -> 'q';
+            case BISHOP -> 'b';
+            case KNIGHT -> 'n';
+            case ROOK -> 'r';
+            case PAWN -> 'p';
+        };
+        return piece.getTeamColor() == ChessGame.TeamColor.WHITE ? Character.toUpperCase(c) : c;
+    }
+
+    private static ChessPiece readPiece(char c) {
+        ChessPiece.PieceType type = switch (Character.toLowerCase(c)) {
+            case 'k' -> ChessPiece.PieceType.KING;
+            case 'q' -> ChessPiece.PieceType.QUEEN;
+            case 'b' -> ChessPiece.PieceType.BISHOP;
+            case 'n' -> ChessPiece.PieceType.KNIGHT;
+            case 'r' -> ChessPiece.PieceType.ROOK;
+            case 'p' -> ChessPiece.PieceType.PAWN;
+            default -> throw new IllegalArgumentException("Unknown piece in FEN: " + c);
+        };
+        ChessGame.TeamColor color = Character.isUpperCase(c) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        return new ChessPiece(color, type);
+    }
+}
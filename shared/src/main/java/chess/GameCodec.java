@@ -0,0 +1,177 @@
+package chess;
+
+/**
+ * A compact, versioned binary form of a {@link ChessGame}.
+ * <p>
+ * Version 2 is 48 bytes plus two per move in the game's history:
+ * <pre>
+ *   0   2  magic "CG"
+ *   2   1  version
+ *   3  32  board, one nibble per square from a1 to h8, low nibble first
+ *  35   1  flags: bit 0 black to move, bit 1 turn set, bit 2 game over
+ *  36   4  number of moves made, big-endian
+ *  40   4  halfmove clock, big-endian
+ *  44   4  number of moves in the history, big-endian
+ *  48  2n  the history as 16-bit {@link PackedMove packed moves}, big-endian
+ * </pre>
+ * A square's nibble is 0 when empty, otherwise the piece type ordinal plus one,
+ * with bit 3 set for black pieces. Version 1 is the same without the history
+ * and can still be decoded.
+ */
+public final class GameCodec {
+
+    public static final int VERSION = 2;
+
+    private static final byte MAGIC_0 = 'C';
+    private static final byte MAGIC_1 = 'G';
+    private static final int HEADER_LENGTH = 3;
+    /** Bytes taken by a board on its own, as written by {@link #writeBoard} */
+    public static final int BOARD_LENGTH = 32;
+    private static final int V1_LENGTH = HEADER_LENGTH + BOARD_LENGTH + 1 + 4 + 4;
+    private static final int V2_LENGTH = V1_LENGTH + 4;
+
+    private static final int BLACK_TO_MOVE = 1;
+    private static final int TURN_SET = 1 << 1;
+    private static final int GAME_OVER = 1 << 2;
+
+    // Pieces are immutable, so decoding shares one instance per nibble value instead of allocating
+    private static final ChessPiece[] PIECES = new ChessPiece[16];
+
+    static {
+        for(ChessGame.TeamColor color : ChessGame.TeamColor.values()){
+            for(ChessPiece.PieceType type : ChessPiece.PieceType.values()){
+                PIECES[nibble(color, type)] = new ChessPiece(color, type);
+            }
+        }
+    }
+
+    private GameCodec() {
+    }
+
+    /**
+     * @return true if the bytes start with this codec's header, which tells them apart from older JSON data
+     */
+    public static boolean isEncoded(byte[] data) {
+        return data != null && data.length >= HEADER_LENGTH && data[0] == MAGIC_0 && data[1] == MAGIC_1;
+    }
+
+    public static byte[] encode(ChessGame game) {
+        MoveList history = game.history();
+        byte[] data = new byte[V2_LENGTH + history.size() * 2];
+        data[0] = MAGIC_0;
+        data[1] = MAGIC_1;
+        data[2] = VERSION;
+
+        writeBoard(game.getBoard(), data, HEADER_LENGTH);
+
+        int flags = 0;
+        if(game.getTeamTurn() == ChessGame.TeamColor.BLACK){
+            flags |= BLACK_TO_MOVE;
+        }
+        if(game.isTurnSet()){
+            flags |= TURN_SET;
+        }
+        if(game.checkGameStatus()){
+            flags |= GAME_OVER;
+        }
+
+        int offset = HEADER_LENGTH + BOARD_LENGTH;
+        data[offset++] = (byte) flags;
+        offset = writeInt(data, offset, game.getMoveCount());
+        offset = writeInt(data, offset, game.getHalfmoveClock());
+        offset = writeInt(data, offset, history.size());
+        for(int i = 0; i < history.size(); i++){
+            int move = history.get(i);
+            data[offset++] = (byte) (move >>> 8);
+            data[offset++] = (byte) move;
+        }
+        return data;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the data is not a game written by this codec
+     */
+    public static ChessGame decode(byte[] data) {
+        if(!isEncoded(data)){
+            throw new IllegalArgumentException("Not an encoded chess game");
+        }
+        int version = data[2];
+        if(version != 1 && version != VERSION){
+            throw new IllegalArgumentException("Unsupported game encoding version " + version);
+        }
+        int historyLength = version == 1 || data.length < V2_LENGTH ? 0 : readInt(data, V1_LENGTH);
+        int expectedLength = version == 1 ? V1_LENGTH : V2_LENGTH + historyLength * 2;
+        if(historyLength < 0 || data.length != expectedLength){
+            throw new IllegalArgumentException("Encoded game has " + data.length + " bytes, expected " + expectedLength);
+        }
+
+        ChessBoard board = readBoard(data, HEADER_LENGTH);
+
+        int offset = HEADER_LENGTH + BOARD_LENGTH;
+        int flags = data[offset++];
+        int moveCount = readInt(data, offset);
+        int halfmoveClock = readInt(data, offset + 4);
+
+        ChessGame game = new ChessGame(board);
+        game.restoreState((flags & BLACK_TO_MOVE) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE,
+                (flags & TURN_SET) != 0, (flags & GAME_OVER) != 0, moveCount, halfmoveClock);
+
+        MoveList history = game.history();
+        for(int i = 0, at = V2_LENGTH; i < historyLength; i++, at += 2){
+            history.add((data[at] & 0xFF) << 8 | data[at + 1] & 0xFF);
+        }
+        return game;
+    }
+
+    /**
+     * Writes just the pieces of a board, in the same nibble layout games use, into
+     * {@link #BOARD_LENGTH} zeroed bytes starting at offset
+     */
+    public static void writeBoard(ChessBoard board, byte[] data, int offset) {
+        for(int square = 0; square < 64; square++){
+            ChessPiece piece = board.pieceAt(square);
+            if(piece != null){
+                int value = nibble(piece.getTeamColor(), piece.getPieceType());
+                data[offset + (square >>> 1)] |= (byte) ((square & 1) == 0 ? value : value << 4);
+            }
+        }
+    }
+
+    /**
+     * Reads a board written by {@link #writeBoard}
+     *
+     * @throws IllegalArgumentException if a square holds a code that is not a piece
+     */
+    public static ChessBoard readBoard(byte[] data, int offset) {
+        ChessBoard board = new ChessBoard();
+        for(int square = 0; square < 64; square++){
+            int packed = data[offset + (square >>> 1)];
+            int value = (square & 1) == 0 ? packed & 0xF : packed >>> 4 & 0xF;
+            if(value != 0){
+                ChessPiece piece = PIECES[value];
+                if(piece == null){
+                    throw new IllegalArgumentException("Bad piece code " + value + " on square " + square);
+                }
+                board.addPiece(Bitboards.toPosition(square), piece);
+            }
+        }
+        return board;
+    }
+
+    private static int nibble(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return (color == ChessGame.TeamColor.BLACK ? 8 : 0) | (type.ordinal() + 1);
+    }
+
+    private static int writeInt(byte[] data, int offset, int value) {
+        data[offset] = (byte) (value >>> 24);
+        data[offset + 1] = (byte) (value >>> 16);
+        data[offset + 2] = (byte) (value >>> 8);
+        data[offset + 3] = (byte) value;
+        return offset + 4;
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return (data[offset] & 0xFF) << 24 | (data[offset + 1] & 0xFF) << 16
+                | (data[offset + 2] & 0xFF) << 8 | data[offset + 3] & 0xFF;
+    }
+}
@@ -0,0 +1,366 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Generates moves straight from the board's bitboards.
+ * <p>
+ * Pseudo-legal moves follow each piece's movement rules but may still leave
+ * the mover's own king in check. Legal moves are produced by working out the
+ * pieces giving check, the pinned pieces and the squares the king may not
+ * step onto once per position, then masking every piece's targets with them.
+ */
+public final class MoveGenerator {
+
+    private static final ChessPiece.PieceType[] PROMOTIONS = {
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.BISHOP,
+            ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.ROOK
+    };
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Calculates all the moves the piece at the given position can make,
+     * ignoring whether they leave its king in danger
+     *
+     * @return Collection of moves, empty if there is no piece at the position
+     */
+    public static Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition position) {
+        Collection<ChessMove> moves = new ArrayList<>();
+        ChessPiece piece = board.getPiece(position);
+        if(piece != null){
+            MoveList list = new MoveList(32);
+            generateMoves(board, piece.getTeamColor(), Bitboards.bit(Bitboards.squareIndex(position)), list);
+            list.addTo(moves);
+        }
+        return moves;
+    }
+
+    /**
+     * Adds every pseudo-legal move for the given team to moves in a single pass over its pieces
+     */
+    public static void generateMoves(ChessBoard board, ChessGame.TeamColor color, Collection<ChessMove> moves) {
+        MoveList list = new MoveList();
+        generateMoves(board, color, -1L, list);
+        list.addTo(moves);
+    }
+
+    /**
+     * Adds every pseudo-legal move for the given team to moves as packed moves
+     */
+    public static void generateMoves(ChessBoard board, ChessGame.TeamColor color, MoveList moves) {
+        generateMoves(board, color, -1L, moves);
+    }
+
+    /**
+     * Adds the pseudo-legal moves of the given team's pieces that stand on a square in fromMask
+     */
+    static void generateMoves(ChessBoard board, ChessGame.TeamColor color, long fromMask, MoveList moves) {
+        long own = board.getOccupancy(color);
+        long occupied = board.getOccupancy();
+        long notOwn = ~own;
+        long enemies = occupied & notOwn;
+
+        for(ChessPiece.PieceType type : ChessPiece.PieceType.values()){
+            long pieces = board.getPieces(color, type) & fromMask;
+            while(pieces != 0){
+                int from = Bitboards.lowestSquare(pieces);
+                pieces &= pieces - 1;
+
+                if(type == ChessPiece.PieceType.PAWN){
+                    addPawnMoves(color, from, pawnTargets(color, from, occupied, own), enemies, moves);
+                }else{
+                    addMoves(from, attacks(type, color, from, occupied) & notOwn, enemies, moves);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculates the legal moves of the piece at the given position
+     *
+     * @return Collection of moves, empty if there is no piece at the position
+     */
+    public static Collection<ChessMove> legalMoves(ChessBoard board, ChessPosition position) {
+        Collection<ChessMove> moves = new ArrayList<>();
+        ChessPiece piece = board.getPiece(position);
+        if(piece != null){
+            MoveList list = new MoveList(32);
+            generateLegalMoves(board, piece.getTeamColor(), Bitboards.bit(Bitboards.squareIndex(position)), list);
+            list.addTo(moves);
+        }
+        return moves;
+    }
+
+    /**
+     * Adds every legal move for the given team to moves
+     */
+    public static void generateLegalMoves(ChessBoard board, ChessGame.TeamColor color, Collection<ChessMove> moves) {
+        MoveList list = new MoveList();
+        generateLegalMoves(board, color, -1L, list);
+        list.addTo(moves);
+    }
+
+    /**
+     * Adds every legal move for the given team to moves as packed moves. Nothing
+     * is allocated as long as the list has room.
+     */
+    public static void generateLegalMoves(ChessBoard board, ChessGame.TeamColor color, MoveList moves) {
+        generateLegalMoves(board, color, -1L, moves);
+    }
+
+    static void generateLegalMoves(ChessBoard board, ChessGame.TeamColor color, long fromMask, MoveList moves) {
+        LegalContext context = new LegalContext(board, color);
+        long pieces = board.getOccupancy(color) & fromMask;
+        long enemies = board.getOccupancy(opponent(color));
+
+        while(pieces != 0){
+            int from = Bitboards.lowestSquare(pieces);
+            pieces &= pieces - 1;
+
+            long targets = context.legalTargets(from);
+            if(context.isPawn(from)){
+                addPawnMoves(color, from, targets, enemies, moves);
+            }else{
+                addMoves(from, targets, enemies, moves);
+            }
+        }
+    }
+
+    /**
+     * @return true if the given team has at least one legal move
+     */
+    public static boolean hasLegalMove(ChessBoard board, ChessGame.TeamColor color) {
+        LegalContext context = new LegalContext(board, color);
+        long pieces = board.getOccupancy(color);
+
+        // The king is the most likely piece to have a move when in check, so try it first
+        long king = board.getPieces(color, ChessPiece.PieceType.KING);
+        if(king != 0 && context.legalTargets(Bitboards.lowestSquare(king)) != 0){
+            return true;
+        }
+
+        pieces &= ~king;
+        while(pieces != 0){
+            int from = Bitboards.lowestSquare(pieces);
+            pieces &= pieces - 1;
+            if(context.legalTargets(from) != 0){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return bitboard of the pieces of byColor that attack square, given the occupied squares
+     */
+    static long attackersTo(ChessBoard board, int square, ChessGame.TeamColor byColor, long occupied) {
+        ChessGame.TeamColor other = opponent(byColor);
+        long queens = board.getPieces(byColor, ChessPiece.PieceType.QUEEN);
+
+        return (AttackTables.PAWN_ATTACKS[other.ordinal()][square] & board.getPieces(byColor, ChessPiece.PieceType.PAWN))
+                | (AttackTables.KNIGHT_ATTACKS[square] & board.getPieces(byColor, ChessPiece.PieceType.KNIGHT))
+                | (AttackTables.KING_ATTACKS[square] & board.getPieces(byColor, ChessPiece.PieceType.KING))
+                | (AttackTables.bishopAttacks(square, occupied) & (board.getPieces(byColor, ChessPiece.PieceType.BISHOP) | queens))
+                | (AttackTables.rookAttacks(square, occupied) & (board.getPieces(byColor, ChessPiece.PieceType.ROOK) | queens));
+    }
+
+    /**
+     * Traces knight and king jumps, pawn captures and sliding rays outward from
+     * square, stopping at the first attacker found
+     *
+     * @return true if any piece of byColor attacks square, given the occupied squares
+     */
+    static boolean isSquareAttacked(ChessBoard board, int square, ChessGame.TeamColor byColor, long occupied) {
+        ChessGame.TeamColor other = opponent(byColor);
+        if((AttackTables.PAWN_ATTACKS[other.ordinal()][square] & board.getPieces(byColor, ChessPiece.PieceType.PAWN)) != 0){
+            return true;
+        }
+        if((AttackTables.KNIGHT_ATTACKS[square] & board.getPieces(byColor, ChessPiece.PieceType.KNIGHT)) != 0){
+            return true;
+        }
+        if((AttackTables.KING_ATTACKS[square] & board.getPieces(byColor, ChessPiece.PieceType.KING)) != 0){
+            return true;
+        }
+
+        long queens = board.getPieces(byColor, ChessPiece.PieceType.QUEEN);
+        long rooks = board.getPieces(byColor, ChessPiece.PieceType.ROOK) | queens;
+        if((AttackTables.rookAttacks(square, 0) & rooks) != 0
+                && (AttackTables.rookAttacks(square, occupied) & rooks) != 0){
+            return true;
+        }
+        long bishops = board.getPieces(byColor, ChessPiece.PieceType.BISHOP) | queens;
+        return (AttackTables.bishopAttacks(square, 0) & bishops) != 0
+                && (AttackTables.bishopAttacks(square, occupied) & bishops) != 0;
+    }
+
+    static ChessGame.TeamColor opponent(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+
+    /**
+     * The check and pin information for one side in one position, computed once
+     * and then applied to every piece's pseudo-legal targets.
+     */
+    private static final class LegalContext {
+        private final ChessBoard board;
+        private final ChessGame.TeamColor color;
+        private final long own;
+        private final long occupied;
+        private final int kingSquare;
+        private final ChessGame.TeamColor enemy;
+        private long checkMask = -1L;
+        private long pinned;
+        private boolean doubleCheck;
+
+        LegalContext(ChessBoard board, ChessGame.TeamColor color) {
+            this.board = board;
+            this.color = color;
+            this.own = board.getOccupancy(color);
+            this.occupied = board.getOccupancy();
+            this.enemy = opponent(color);
+
+            long king = board.getPieces(color, ChessPiece.PieceType.KING);
+            this.kingSquare = king == 0 ? -1 : Bitboards.lowestSquare(king);
+            if(kingSquare < 0){
+                return;
+            }
+
+            long checkers = attackersTo(board, kingSquare, enemy, occupied);
+            if(Long.bitCount(checkers) > 1){
+                doubleCheck = true;
+                checkMask = 0;
+            }else if(checkers != 0){
+                checkMask = checkers | AttackTables.BETWEEN[kingSquare][Bitboards.lowestSquare(checkers)];
+            }
+
+            long enemyQueens = board.getPieces(enemy, ChessPiece.PieceType.QUEEN);
+            long snipers = (AttackTables.rookAttacks(kingSquare, 0)
+                    & (board.getPieces(enemy, ChessPiece.PieceType.ROOK) | enemyQueens))
+                    | (AttackTables.bishopAttacks(kingSquare, 0)
+                    & (board.getPieces(enemy, ChessPiece.PieceType.BISHOP) | enemyQueens));
+            while(snipers != 0){
+                int sniper = Bitboards.lowestSquare(snipers);
+                snipers &= snipers - 1;
+                long blockers = AttackTables.BETWEEN[kingSquare][sniper] & occupied;
+                if(Long.bitCount(blockers) == 1 && (blockers & own) != 0){
+                    pinned |= blockers;
+                }
+            }
+        }
+
+        boolean isPawn(int square) {
+            return (board.getPieces(color, ChessPiece.PieceType.PAWN) & Bitboards.bit(square)) != 0;
+        }
+
+        long legalTargets(int from) {
+            if(from == kingSquare){
+                return kingTargets();
+            }
+            if(doubleCheck){
+                return 0;
+            }
+
+            long targets = isPawn(from)
+                    ? pawnTargets(color, from, occupied, own)
+                    : attacks(pieceType(from), color, from, occupied) & ~own;
+            targets &= checkMask;
+            if((pinned & Bitboards.bit(from)) != 0){
+                targets &= AttackTables.LINE[kingSquare][from];
+            }
+            return targets;
+        }
+
+        private long kingTargets() {
+            // The king must not be able to hide behind itself from a slider, so leave it out of the occupancy
+            long withoutKing = occupied & ~Bitboards.bit(kingSquare);
+            long candidates = AttackTables.KING_ATTACKS[kingSquare] & ~own;
+            long targets = 0;
+
+            while(candidates != 0){
+                int to = Bitboards.lowestSquare(candidates);
+                candidates &= candidates - 1;
+                if(!isSquareAttacked(board, to, enemy, withoutKing)){
+                    targets |= Bitboards.bit(to);
+                }
+            }
+            return targets;
+        }
+
+        private ChessPiece.PieceType pieceType(int square) {
+            return board.pieceAt(square).getPieceType();
+        }
+    }
+
+    /**
+     * @return the squares a piece of the given type on square attacks
+     */
+    static long attacks(ChessPiece.PieceType type, ChessGame.TeamColor color, int square, long occupied) {
+        return switch (type) {
+            case KING -> AttackTables.KING_ATTACKS[square];
+            case QUEEN -> AttackTables.queenAttacks(square, occupied);
+            case BISHOP -> AttackTables.bishopAttacks(square, occupied);
+            case KNIGHT -> AttackTables.KNIGHT_ATTACKS[square];
+            case ROOK -> AttackTables.rookAttacks(square, occupied);
+            case PAWN -> AttackTables.PAWN_ATTACKS[color.ordinal()][square];
+        };
+    }
+
+    /**
+     * @return the squares a pawn on square can move to: single and double pushes plus captures
+     */
+    static long pawnTargets(ChessGame.TeamColor color, int square, long occupied, long own) {
+        long enemies = occupied & ~own;
+        long captures = AttackTables.PAWN_ATTACKS[color.ordinal()][square] & enemies;
+        int row = Bitboards.rowOf(square);
+        long pushes = 0;
+
+        if(color == ChessGame.TeamColor.WHITE){
+            if(row < 8 && (occupied & Bitboards.bit(square + 8)) == 0){
+                pushes = Bitboards.bit(square + 8);
+                if(row == 2 && (occupied & Bitboards.bit(square + 16)) == 0){
+                    pushes |= Bitboards.bit(square + 16);
+                }
+            }
+        }else{
+            if(row > 1 && (occupied & Bitboards.bit(square - 8)) == 0){
+                pushes = Bitboards.bit(square - 8);
+                if(row == 7 && (occupied & Bitboards.bit(square - 16)) == 0){
+                    pushes |= Bitboards.bit(square - 16);
+                }
+            }
+        }
+
+        return pushes | captures;
+    }
+
+    static void addMoves(int from, long targets, long enemies, MoveList moves) {
+        while(targets != 0){
+            int to = Bitboards.lowestSquare(targets);
+            long target = targets & -targets;
+            targets ^= target;
+            moves.add(PackedMove.encode(from, to, null, (target & enemies) != 0 ? PackedMove.CAPTURE : 0));
+        }
+    }
+
+    static void addPawnMoves(ChessGame.TeamColor color, int from, long targets, long enemies, MoveList moves) {
+        int promotionRow = color == ChessGame.TeamColor.WHITE ? 8 : 1;
+
+        while(targets != 0){
+            int to = Bitboards.lowestSquare(targets);
+            long target = targets & -targets;
+            targets ^= target;
+            int flags = (target & enemies) != 0 ? PackedMove.CAPTURE : 0;
+
+            if(Bitboards.rowOf(to) == promotionRow){
+                for(ChessPiece.PieceType promotion : PROMOTIONS){
+                    moves.add(PackedMove.encode(from, to, promotion, flags));
+                }
+            }else{
+                moves.add(PackedMove.encode(from, to, null, flags));
+            }
+        }
+    }
+}
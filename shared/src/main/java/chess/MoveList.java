@@ -0,0 +1,103 @@
+package chess;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A growable list of {@link PackedMove packed moves} backed by an int array.
+ * <p>
+ * Clearing the list keeps its array, so one list can be refilled for every
+ * position in a search without allocating.
+ */
+public final class MoveList {
+
+    // No legal chess position has more than 218 moves
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private int[] moves;
+    private int size;
+
+    public MoveList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MoveList(int capacity) {
+        moves = new int[capacity];
+    }
+
+    public void add(int move) {
+        if(size == moves.length){
+            moves = Arrays.copyOf(moves, Math.max(8, moves.length * 2));
+        }
+        moves[size++] = move;
+    }
+
+    public int get(int index) {
+        if(index >= size){
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return moves[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes and returns the last move in the list
+     */
+    public int removeLast() {
+        if(size == 0){
+            throw new IndexOutOfBoundsException("Move list is empty");
+        }
+        return moves[--size];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return true if the list holds a move with the same start, end and promotion, ignoring flags
+     */
+    public boolean contains(int move) {
+        for(int i = 0; i < size; i++){
+            if(PackedMove.sameMove(moves[i], move)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return a copy of the moves in the list
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(moves, size);
+    }
+
+    /**
+     * Unpacks every move in the list and adds it to the given collection
+     */
+    public void addTo(Collection<ChessMove> target) {
+        for(int i = 0; i < size; i++){
+            target.add(PackedMove.toChessMove(moves[i]));
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("[");
+        for(int i = 0; i < size; i++){
+            if(i > 0){
+                result.append(", ");
+            }
+            result.append(PackedMove.toString(moves[i]));
+        }
+        return result.append(']').toString();
+    }
+}
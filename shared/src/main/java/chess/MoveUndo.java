@@ -0,0 +1,13 @@
+package chess;
+
+/**
+ * Everything needed to take back a move made with {@link ChessBoard#makeMove(ChessMove)}.
+ *
+ * @param from      square index the piece moved from
+ * @param to        square index the piece moved to
+ * @param moved     the piece as it stood before the move
+ * @param captured  the piece that was on the target square, or null
+ * @param promotion the piece type a pawn was promoted to, or null
+ */
+public record MoveUndo(int from, int to, ChessPiece moved, ChessPiece captured, ChessPiece.PieceType promotion) {
+}
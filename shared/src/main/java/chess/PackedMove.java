@@ -0,0 +1,79 @@
+package chess;
+
+/**
+ * Packs a move into the low 16 bits of an int so move lists can be plain
+ * {@code int[]} arrays instead of lists of {@link ChessMove} objects.
+ * <p>
+ * Bits 0-5 hold the start square and bits 6-11 the end square, using the
+ * square indexes from {@link Bitboards}. Bits 12-14 hold the promotion piece
+ * as its ordinal plus one, or zero for no promotion. Bit 15 is set on
+ * captures; it is informational and {@link #toChessMove(int)} ignores it.
+ */
+public final class PackedMove {
+
+    public static final int CAPTURE = 1 << 15;
+
+    // The bits that identify a move, without the flags
+    static final int MOVE_MASK = CAPTURE - 1;
+
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private PackedMove() {
+    }
+
+    public static int encode(int from, int to, ChessPiece.PieceType promotion, int flags) {
+        int promotionBits = promotion == null ? 0 : promotion.ordinal() + 1;
+        return from | to << 6 | promotionBits << 12 | flags;
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return move >>> 6 & 0x3F;
+    }
+
+    /**
+     * @return the piece a pawn is promoted to, or null if the move is not a promotion
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        int promotionBits = move >>> 12 & 0x7;
+        return promotionBits == 0 ? null : TYPES[promotionBits - 1];
+    }
+
+    public static boolean isPromotion(int move) {
+        return (move & 0x7000) != 0;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    /**
+     * @return true if both encode the same start, end and promotion, whatever their flags
+     */
+    public static boolean sameMove(int first, int second) {
+        return (first & MOVE_MASK) == (second & MOVE_MASK);
+    }
+
+    /**
+     * Packs a ChessMove. The capture flag is left clear since the move alone
+     * does not say whether it captures.
+     */
+    public static int fromChessMove(ChessMove move) {
+        return encode(Bitboards.squareIndex(move.getStartPosition()), Bitboards.squareIndex(move.getEndPosition()),
+                move.getPromotionPiece(), 0);
+    }
+
+    public static ChessMove toChessMove(int move) {
+        return new ChessMove(Bitboards.toPosition(from(move)), Bitboards.toPosition(to(move)), promotion(move));
+    }
+
+    /**
+     * @return the move in coordinate notation, such as {@code e7e8q}
+     */
+    public static String toString(int move) {
+        return Perft.moveName(toChessMove(move));
+    }
+}
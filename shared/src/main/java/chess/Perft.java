@@ -0,0 +1,199 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth (perft).
+ * <p>
+ * Perft numbers are compared against known totals to check the move
+ * generator, and the time they take is a measure of its throughput.
+ */
+public final class Perft {
+
+    // Subtrees at or below this depth are counted on one thread; splitting them further costs more than it saves
+    private static final int SEQUENTIAL_DEPTH = 3;
+
+    private Perft() {
+    }
+
+    /**
+     * @return the number of legal move sequences of the given length from the game's
+     * current position, starting with the team whose turn it is
+     */
+    public static long perft(ChessGame game, int depth) {
+        return perft(game.getBoard(), game.getTeamTurn(), depth);
+    }
+
+    public static long perft(ChessBoard board, ChessGame.TeamColor toMove, int depth) {
+        if(depth <= 0){
+            return 1;
+        }
+
+        // One reusable list per ply, so the search allocates nothing after this
+        MoveList[] lists = new MoveList[depth];
+        for(int i = 0; i < depth; i++){
+            lists[i] = new MoveList();
+        }
+        return perft(board, toMove, depth, lists);
+    }
+
+    private static long perft(ChessBoard board, ChessGame.TeamColor toMove, int depth, MoveList[] lists) {
+        MoveList moves = lists[depth - 1];
+        moves.clear();
+        MoveGenerator.generateLegalMoves(board, toMove, moves);
+        if(depth == 1){
+            return moves.size();
+        }
+
+        ChessGame.TeamColor next = MoveGenerator.opponent(toMove);
+        long nodes = 0;
+        for(int i = 0; i < moves.size(); i++){
+            int move = moves.get(i);
+            ChessPiece captured = board.makeMove(move);
+            nodes += perft(board, next, depth - 1, lists);
+            board.unmakeMove(move, captured);
+        }
+        return nodes;
+    }
+
+    /**
+     * Counts the same nodes as {@link #perft(ChessGame, int)}, splitting the work across the common fork/join pool
+     */
+    public static long parallelPerft(ChessGame game, int depth) {
+        return parallelPerft(game.getBoard(), game.getTeamTurn(), depth, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Counts perft nodes in parallel. The root moves and every subtree deeper than
+     * a few plies become separate tasks, each working on its own copy of the
+     * board, so the given board is never modified.
+     */
+    public static long parallelPerft(ChessBoard board, ChessGame.TeamColor toMove, int depth, ForkJoinPool pool) {
+        return pool.invoke(new PerftTask(new ChessBoard(board), toMove, depth));
+    }
+
+    /**
+     * Runs perft on many positions at once, sharing one pool between all of them
+     *
+     * @return the node count for each game, in the same order as the games
+     */
+    public static long[] parallelPerft(List<ChessGame> games, int depth, ForkJoinPool pool) {
+        List<PerftTask> tasks = new ArrayList<>(games.size());
+        for(ChessGame game : games){
+            tasks.add(new PerftTask(new ChessBoard(game.getBoard()), game.getTeamTurn(), depth));
+        }
+
+        return pool.invoke(new RecursiveTask<>() {
+            @Override
+            protected long[] compute() {
+                invokeAll(tasks);
+                long[] counts = new long[tasks.size()];
+                for(int i = 0; i < counts.length; i++){
+                    counts[i] = tasks.get(i).join();
+                }
+                return counts;
+            }
+        });
+    }
+
+    /**
+     * Splits the perft count by root move, which narrows down where a wrong total comes from
+     *
+     * @return the node count below each legal root move, in generation order
+     * @throws IllegalArgumentException if depth is below 1, since there is no root move to split by
+     */
+    public static Map<ChessMove, Long> divide(ChessGame game, int depth) {
+        if(depth < 1){
+            throw new IllegalArgumentException("divide needs a depth of at least 1, got " + depth);
+        }
+        ChessBoard board = game.getBoard();
+        ChessGame.TeamColor toMove = game.getTeamTurn();
+        Map<ChessMove, Long> counts = new LinkedHashMap<>();
+
+        List<ChessMove> moves = new ArrayList<>();
+        MoveGenerator.generateLegalMoves(board, toMove, moves);
+        for(ChessMove move : moves){
+            MoveUndo undo = board.makeMove(move);
+            counts.put(move, perft(board, MoveGenerator.opponent(toMove), depth - 1));
+            board.unmakeMove(undo);
+        }
+        return counts;
+    }
+
+    /**
+     * Formats divide output one root move per line, such as {@code e2e4: 9771},
+     * followed by the total
+     */
+    public static String formatDivide(Map<ChessMove, Long> counts) {
+        StringBuilder result = new StringBuilder();
+        long total = 0;
+
+        for(Map.Entry<ChessMove, Long> entry : counts.entrySet()){
+            result.append(moveName(entry.getKey())).append(": ").append(entry.getValue()).append("\n");
+            total += entry.getValue();
+        }
+        result.append("\nNodes searched: ").append(total).append("\n");
+        return result.toString();
+    }
+
+    static String moveName(ChessMove move) {
+        String name = squareName(move.getStartPosition()) + squareName(move.getEndPosition());
+        if(move.getPromotionPiece() == null){
+            return name;
+        }
+
+        return name + switch (move.getPromotionPiece()) {
+            case QUEEN -> "q";
+            case ROOK -> "r";
+            case BISHOP -> "b";
+            case KNIGHT -> "n";
+            default -> "";
+        };
+    }
+
+    private static String squareName(ChessPosition position) {
+        return "" + (char) ('a' + position.getColumn() - 1) + position.getRow();
+    }
+
+    private static final class PerftTask extends RecursiveTask<Long> {
+        private final ChessBoard board;
+        private final ChessGame.TeamColor toMove;
+        private final int depth;
+
+        // The task owns the board and may change it
+        PerftTask(ChessBoard board, ChessGame.TeamColor toMove, int depth) {
+            this.board = board;
+            this.toMove = toMove;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            if(depth <= SEQUENTIAL_DEPTH){
+                return perft(board, toMove, depth);
+            }
+
+            MoveList moves = new MoveList();
+            MoveGenerator.generateLegalMoves(board, toMove, moves);
+            List<PerftTask> subtasks = new ArrayList<>(moves.size());
+            ChessGame.TeamColor next = MoveGenerator.opponent(toMove);
+            for(int i = 0; i < moves.size(); i++){
+                ChessBoard child = new ChessBoard(board);
+                child.makeMove(moves.get(i));
+                subtasks.add(new PerftTask(child, next, depth - 1));
+            }
+
+            invokeAll(subtasks);
+            long nodes = 0;
+            for(PerftTask subtask : subtasks){
+                nodes += subtask.join();
+            }
+            return nodes;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing. A position's key is the XOR of the keys of
+ * everything in it, so adding or removing a piece updates the key with a
+ * single XOR. The seed is fixed so keys are stable across runs and machines.
+ */
+final class Zobrist {
+
+    // Indexed by ChessBoard.pieceIndex, then square
+    static final long[][] PIECE_SQUARE = new long[12][64];
+    static final long BLACK_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_C0DE_2024L);
+        for(long[] squares : PIECE_SQUARE){
+            for(int square = 0; square < 64; square++){
+                squares[square] = random.nextLong();
+            }
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+}
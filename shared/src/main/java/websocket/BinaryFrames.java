@@ -0,0 +1,190 @@
+package websocket;
+
+import chess.ChessBoard;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.GameCodec;
+import chess.PackedMove;
+import websocket.commands.UserGameCommand;
+import websocket.messages.ServerMessage;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The binary form of WebSocket commands and server messages, used instead of JSON
+ * once a client asks for it on CONNECT.
+ * <p>
+ * Every frame starts with a version byte and the command or message type ordinal.
+ * Numbers are big-endian. A command is then:
+ * <pre>
+ *   2   1  flags: bit 0 has gameID, bit 1 has move, bit 2 move updates, bit 3 binary frames
+ *   3   4  gameID, if present
+ *   .   2  the move as a {@link PackedMove}, if present
+ *   .   1  auth token length, then the token in UTF-8
+ * </pre>
+ * A server message continues by type:
+ * <pre>
+ *   LOAD_GAME     32  the board, as {@link GameCodec#writeBoard} lays it out
+ *   MOVE           2  packed move, then 4 ply, then 8 position hash
+ *   NOTIFICATION   2  text length, then the text in UTF-8
+ *   ERROR          2  text length, then the text in UTF-8
+ * </pre>
+ * A LOAD_GAME is 34 bytes where its JSON is well over a kilobyte.
+ */
+public final class BinaryFrames {
+
+    public static final int VERSION = 1;
+
+    private static final int HAS_GAME_ID = 1;
+    private static final int HAS_MOVE = 1 << 1;
+    private static final int MOVE_UPDATES = 1 << 2;
+    private static final int BINARY_FRAMES = 1 << 3;
+
+    private BinaryFrames() {
+    }
+
+    public static byte[] encodeCommand(UserGameCommand command) {
+        byte[] token = command.getAuthToken() == null ? new byte[0]
+                : command.getAuthToken().getBytes(StandardCharsets.UTF_8);
+        if (token.length > 255) {
+            throw new IllegalArgumentException("Auth token too long for a binary frame");
+        }
+
+        int flags = 0;
+        if (command.getGameID() != null) {
+            flags |= HAS_GAME_ID;
+        }
+        if (command.getMove() != null) {
+            flags |= HAS_MOVE;
+        }
+        if (command.wantsMoveUpdates()) {
+            flags |= MOVE_UPDATES;
+        }
+        if (command.wantsBinaryFrames()) {
+            flags |= BINARY_FRAMES;
+        }
+
+        var frame = ByteBuffer.allocate(3 + 4 + 2 + 1 + token.length);
+        frame.put((byte) VERSION).put((byte) command.getCommandType().ordinal()).put((byte) flags);
+        if (command.getGameID() != null) {
+            frame.putInt(command.getGameID());
+        }
+        if (command.getMove() != null) {
+            frame.putShort((short) PackedMove.fromChessMove(command.getMove()));
+        }
+        frame.put((byte) token.length).put(token);
+        return trim(frame);
+    }
+
+    /**
+     * Reads a command frame. Arriving as a binary frame is itself a request for
+     * binary replies, so the command always comes back wanting binary frames.
+     *
+     * @throws IllegalArgumentException if the frame is malformed
+     */
+    public static UserGameCommand decodeCommand(byte[] data, int offset, int length) {
+        var frame = ByteBuffer.wrap(data, offset, length);
+        try {
+            checkVersion(frame.get());
+            var type = enumAt(UserGameCommand.CommandType.values(), frame.get());
+            int flags = frame.get();
+            Integer gameID = (flags & HAS_GAME_ID) != 0 ? frame.getInt() : null;
+            ChessMove move = (flags & HAS_MOVE) != 0 ? readMove(frame) : null;
+            byte[] token = new byte[frame.get() & 0xFF];
+            frame.get(token);
+            String authToken = token.length == 0 ? null : new String(token, StandardCharsets.UTF_8);
+            return new UserGameCommand(type, authToken, gameID, move, (flags & MOVE_UPDATES) != 0, true);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Command frame ends early");
+        }
+    }
+
+    public static byte[] encodeMessage(ServerMessage message) {
+        var type = message.getServerMessageType();
+        ByteBuffer frame = switch (type) {
+            case LOAD_GAME -> {
+                byte[] data = new byte[2 + GameCodec.BOARD_LENGTH];
+                GameCodec.writeBoard(message.getGame(), data, 2);
+                yield ByteBuffer.wrap(data).position(data.length);
+            }
+            case MOVE -> ByteBuffer.allocate(2 + 2 + 4 + 8).position(2)
+                    .putShort((short) PackedMove.fromChessMove(message.getMove()))
+                    .putInt(message.getPly())
+                    .putLong(message.getPositionHash());
+            case NOTIFICATION -> text(message.getMessage());
+            case ERROR -> text(message.getErrorMessage());
+        };
+        frame.put(0, (byte) VERSION).put(1, (byte) type.ordinal());
+        return trim(frame);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the frame is malformed
+     */
+    public static ServerMessage decodeMessage(ByteBuffer frame) {
+        try {
+            checkVersion(frame.get());
+            var type = enumAt(ServerMessage.ServerMessageType.values(), frame.get());
+            return switch (type) {
+                case LOAD_GAME -> {
+                    byte[] board = new byte[GameCodec.BOARD_LENGTH];
+                    frame.get(board);
+                    ChessBoard decoded = GameCodec.readBoard(board, 0);
+                    yield new ServerMessage(type, decoded);
+                }
+                case MOVE -> new ServerMessage(readMove(frame), frame.getInt(),
+                        frame.getLong());
+                case NOTIFICATION, ERROR -> {
+                    byte[] text = new byte[frame.getShort() & 0xFFFF];
+                    frame.get(text);
+                    yield new ServerMessage(type, new String(text, StandardCharsets.UTF_8));
+                }
+            };
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Message frame ends early");
+        }
+    }
+
+    private static ByteBuffer text(String text) {
+        byte[] bytes = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Text too long for a binary frame");
+        }
+        return ByteBuffer.allocate(2 + 2 + bytes.length).position(2).putShort((short) bytes.length).put(bytes);
+    }
+
+    private static void checkVersion(byte version) {
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported frame version " + version);
+        }
+    }
+
+    private static ChessMove readMove(ByteBuffer frame) {
+        int move = frame.getShort() & 0xFFFF;
+        int promotionBits = move >>> 12 & 0x7;
+        if (promotionBits > ChessPiece.PieceType.values().length) {
+            throw new IllegalArgumentException("Unknown promotion piece " + promotionBits);
+        }
+        return PackedMove.toChessMove(move);
+    }
+
+    private static <T> T enumAt(T[] values, byte ordinal) {
+        if (ordinal < 0 || ordinal >= values.length) {
+            throw new IllegalArgumentException("Unknown frame type " + ordinal);
+        }
+        return values[ordinal];
+    }
+
+    // Buffers are sized for the largest frame of their kind; copy out only what was written
+    private static byte[] trim(ByteBuffer frame) {
+        byte[] data = frame.array();
+        if (frame.position() == data.length) {
+            return data;
+        }
+        byte[] trimmed = new byte[frame.position()];
+        System.arraycopy(data, 0, trimmed, 0, trimmed.length);
+        return trimmed;
+    }
+}
@@ -20,18 +20,43 @@ public class UserGameCommand {
 
     private final ChessMove move;
 
+    // Only read on CONNECT; left out of the JSON by clients that predate these options
+    private final Boolean moveUpdates;
+    private final Boolean binaryFrames;
+
     public UserGameCommand(CommandType commandType, String authToken, Integer gameID, ChessMove move) {
+        this(commandType, authToken, gameID, move, null);
+    }
+
+    /**
+     * @param moveUpdates on CONNECT, asks for a MOVE message after each move instead of the whole board
+     */
+    public UserGameCommand(CommandType commandType, String authToken, Integer gameID, ChessMove move,
+                           Boolean moveUpdates) {
+        this(commandType, authToken, gameID, move, moveUpdates, null);
+    }
+
+    /**
+     * @param binaryFrames on CONNECT, asks for server messages as binary frames; a server that
+     *                     does not support them ignores this and keeps sending JSON
+     */
+    public UserGameCommand(CommandType commandType, String authToken, Integer gameID, ChessMove move,
+                           Boolean moveUpdates, Boolean binaryFrames) {
         this.commandType = commandType;
         this.authToken = authToken;
         this.gameID = gameID;
         this.move = move;
+        this.moveUpdates = moveUpdates;
+        this.binaryFrames = binaryFrames;
     }
 
     public enum CommandType {
         CONNECT,
         MAKE_MOVE,
         LEAVE,
-        RESIGN
+        RESIGN,
+        /** Asks for the whole board again, after a MOVE message did not match the client's copy */
+        RESYNC
     }
 
     public CommandType getCommandType() {
@@ -50,6 +75,14 @@ public class UserGameCommand {
         return move;
     }
 
+    public boolean wantsMoveUpdates() {
+        return Boolean.TRUE.equals(moveUpdates);
+    }
+
+    public boolean wantsBinaryFrames() {
+        return Boolean.TRUE.equals(binaryFrames);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -2,6 +2,8 @@ package websocket.messages;
 
 import chess.ChessBoard;
 import chess.ChessGame;
+import chess.ChessMove;
+import chess.PackedMove;
 import com.google.gson.Gson;
 import model.GameData;
 
@@ -14,12 +16,20 @@ import java.util.Objects;
  * methods.
  */
 public class ServerMessage {
+    // Gson is thread safe, and building one per message cost more than the encoding itself
+    private static final Gson GSON = new Gson();
+
     ServerMessageType serverMessageType;
 
     private ChessBoard game;
     private String message;
     private String errorMessage;
 
+    // Set only on MOVE messages; the move is a PackedMove, a few digits instead of a nested object
+    private Integer move;
+    private Integer ply;
+    private Long positionHash;
+
 
     public ServerMessage(ServerMessageType serverMessageType, String message) {
         this.serverMessageType = serverMessageType;
@@ -36,7 +46,9 @@ public class ServerMessage {
     public enum ServerMessageType {
         LOAD_GAME,
         ERROR,
-        NOTIFICATION
+        NOTIFICATION,
+        /** One move that was just played, for clients that asked for moves rather than whole boards */
+        MOVE
     }
 
     public ServerMessage(ServerMessageType type, ChessBoard game) {
@@ -44,6 +56,21 @@ public class ServerMessage {
         this.game = game;
     }
 
+    /**
+     * Creates a MOVE message
+     *
+     * @param move         the move that was played
+     * @param ply          how many moves the game has had, counting this one
+     * @param positionHash the Zobrist key of the board after the move, which a client
+     *                     compares against its own copy to notice it has drifted
+     */
+    public ServerMessage(ChessMove move, int ply, long positionHash) {
+        this.serverMessageType = ServerMessageType.MOVE;
+        this.move = PackedMove.fromChessMove(move);
+        this.ply = ply;
+        this.positionHash = positionHash;
+    }
+
     public ChessBoard getGame() {
         return this.game;
     }
@@ -73,12 +100,24 @@ public class ServerMessage {
         this.serverMessageType = type;
     }
 
+    public ChessMove getMove() {
+        return move == null ? null : PackedMove.toChessMove(move);
+    }
+
+    public int getPly() {
+        return ply == null ? 0 : ply;
+    }
+
+    public long getPositionHash() {
+        return positionHash == null ? 0 : positionHash;
+    }
+
     public ServerMessageType getServerMessageType() {
         return this.serverMessageType;
     }
 
     public String toString() {
-        return new Gson().toJson(this);
+        return GSON.toJson(this);
     }
 
 
@@ -0,0 +1,145 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static passoff.chess.TestUtilities.loadBoard;
+
+public class AttackTests {
+
+    private static final ChessGame.TeamColor WHITE = ChessGame.TeamColor.WHITE;
+    private static final ChessGame.TeamColor BLACK = ChessGame.TeamColor.BLACK;
+
+    private static ChessGame gameOn(ChessBoard board) {
+        var game = new ChessGame();
+        game.setBoard(board);
+        return game;
+    }
+
+    // Checks the board and the game agree, since the game only forwards to the board
+    private static void assertAttacked(boolean expected, ChessBoard board, int row, int col, ChessGame.TeamColor by) {
+        var position = new ChessPosition(row, col);
+        Assertions.assertEquals(expected, board.isSquareAttacked(position, by), by + " attacks " + position);
+        Assertions.assertEquals(expected, gameOn(board).isSquareAttacked(position, by), by + " attacks " + position);
+    }
+
+    @Test
+    void slidersStopAtTheFirstPiece() {
+        var board = loadBoard("""
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                |p| | | | | | | |
+                | | | | | | | | |
+                | | | |P| | | | |
+                |R| |B| | | | |q|
+                """);
+
+        // The rook sees up to and including the black pawn, but not past it
+        assertAttacked(true, board, 3, 1, WHITE);
+        assertAttacked(true, board, 4, 1, WHITE);
+        assertAttacked(false, board, 5, 1, WHITE);
+        // Along the first rank the bishop blocks the rook, and its own pawn blocks the bishop
+        assertAttacked(true, board, 1, 2, WHITE);
+        assertAttacked(false, board, 4, 6, WHITE);
+        assertAttacked(true, board, 2, 2, WHITE);
+        // The queen's ray along the first rank stops at the bishop
+        assertAttacked(true, board, 1, 4, BLACK);
+        assertAttacked(true, board, 1, 3, BLACK);
+        assertAttacked(false, board, 1, 2, BLACK);
+
+        // Removing the blockers opens the rays
+        board.removePiece(new ChessPosition(4, 1));
+        board.removePiece(new ChessPosition(2, 4));
+        assertAttacked(true, board, 8, 1, WHITE);
+        assertAttacked(true, board, 4, 6, WHITE);
+    }
+
+    @Test
+    void pawnsAttackForwardDiagonalsOnly() {
+        var board = new ChessBoard();
+        board.addPiece(new ChessPosition(4, 4), new ChessPiece(WHITE, ChessPiece.PieceType.PAWN));
+        board.addPiece(new ChessPosition(5, 6), new ChessPiece(BLACK, ChessPiece.PieceType.PAWN));
+
+        // White pawns attack up the board
+        assertAttacked(true, board, 5, 3, WHITE);
+        assertAttacked(true, board, 5, 5, WHITE);
+        assertAttacked(false, board, 3, 3, WHITE);
+        assertAttacked(false, board, 3, 5, WHITE);
+        // Pushing is not attacking
+        assertAttacked(false, board, 5, 4, WHITE);
+
+        // Black pawns attack down the board
+        assertAttacked(true, board, 4, 5, BLACK);
+        assertAttacked(true, board, 4, 7, BLACK);
+        assertAttacked(false, board, 6, 5, BLACK);
+        assertAttacked(false, board, 6, 7, BLACK);
+        assertAttacked(false, board, 4, 6, BLACK);
+    }
+
+    @Test
+    void pawnsOnTheEdgeDoNotWrap() {
+        var board = new ChessBoard();
+        board.addPiece(new ChessPosition(4, 1), new ChessPiece(WHITE, ChessPiece.PieceType.PAWN));
+        board.addPiece(new ChessPosition(5, 8), new ChessPiece(BLACK, ChessPiece.PieceType.PAWN));
+
+        assertAttacked(true, board, 5, 2, WHITE);
+        assertAttacked(false, board, 5, 8, WHITE);
+        assertAttacked(true, board, 4, 7, BLACK);
+        assertAttacked(false, board, 4, 1, BLACK);
+    }
+
+    @Test
+    void knightsAndKings() {
+        var board = new ChessBoard();
+        board.addPiece(new ChessPosition(1, 2), new ChessPiece(WHITE, ChessPiece.PieceType.KNIGHT));
+        board.addPiece(new ChessPosition(8, 8), new ChessPiece(BLACK, ChessPiece.PieceType.KING));
+        // Knights jump over pieces
+        board.addPiece(new ChessPosition(2, 2), new ChessPiece(WHITE, ChessPiece.PieceType.PAWN));
+        board.addPiece(new ChessPosition(2, 3), new ChessPiece(WHITE, ChessPiece.PieceType.PAWN));
+
+        assertAttacked(true, board, 3, 1, WHITE);
+        assertAttacked(true, board, 3, 3, WHITE);
+        assertAttacked(true, board, 2, 4, WHITE);
+        assertAttacked(false, board, 2, 1, WHITE);
+        assertAttacked(false, board, 4, 2, WHITE);
+        assertAttacked(false, board, 3, 8, WHITE);
+
+        assertAttacked(true, board, 7, 7, BLACK);
+        assertAttacked(true, board, 8, 7, BLACK);
+        assertAttacked(true, board, 7, 8, BLACK);
+        assertAttacked(false, board, 6, 8, BLACK);
+        assertAttacked(false, board, 8, 1, BLACK);
+        // A piece never attacks its own square
+        assertAttacked(false, board, 8, 8, BLACK);
+    }
+
+    @Test
+    void occupiedTargetsAreAttacked() {
+        var board = loadBoard("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | |n| |p| | |
+                | | | | |P| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |R| | | |
+                """);
+
+        // Pieces of either color on the target still count as attacked
+        assertAttacked(true, board, 5, 4, WHITE);
+        assertAttacked(true, board, 5, 6, WHITE);
+        assertAttacked(true, board, 4, 5, WHITE);
+        assertAttacked(false, board, 8, 5, WHITE);
+        assertAttacked(true, board, 4, 5, BLACK);
+        assertAttacked(false, board, 5, 4, BLACK);
+
+        var game = gameOn(board);
+        Assertions.assertFalse(game.isInCheck(BLACK));
+        board.removePiece(new ChessPosition(4, 5));
+        Assertions.assertTrue(game.isSquareAttacked(new ChessPosition(8, 5), WHITE));
+        Assertions.assertTrue(game.isInCheck(BLACK));
+    }
+}
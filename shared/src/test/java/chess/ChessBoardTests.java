@@ -0,0 +1,124 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ChessBoardTests {
+
+    private static final ChessPiece WHITE_KNIGHT = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT);
+    private static final ChessPiece BLACK_QUEEN = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN);
+
+    // Every bitboard has to agree with the square array, square by square
+    private static void assertIndexed(ChessBoard board) {
+        long white = 0;
+        long black = 0;
+        long[] pieces = new long[12];
+        for(int square = 0; square < 64; square++){
+            ChessPiece piece = board.getPiece(Bitboards.toPosition(square));
+            if(piece == null){
+                continue;
+            }
+            pieces[ChessBoard.pieceIndex(piece.getTeamColor(), piece.getPieceType())] |= 1L << square;
+            if(piece.getTeamColor() == ChessGame.TeamColor.WHITE){
+                white |= 1L << square;
+            }else{
+                black |= 1L << square;
+            }
+        }
+
+        for(var color : ChessGame.TeamColor.values()){
+            for(var type : ChessPiece.PieceType.values()){
+                Assertions.assertEquals(pieces[ChessBoard.pieceIndex(color, type)], board.getPieces(color, type),
+                        color + " " + type);
+            }
+        }
+        Assertions.assertEquals(white, board.getOccupancy(ChessGame.TeamColor.WHITE));
+        Assertions.assertEquals(black, board.getOccupancy(ChessGame.TeamColor.BLACK));
+        Assertions.assertEquals(white | black, board.getOccupancy());
+        Assertions.assertEquals(board.computeZobristKey(), board.getZobristKey());
+    }
+
+    @Test
+    void bitboardsFollowAddAndRemove() {
+        var board = new ChessBoard();
+        assertIndexed(board);
+
+        board.addPiece(new ChessPosition(4, 4), WHITE_KNIGHT);
+        board.addPiece(new ChessPosition(5, 5), BLACK_QUEEN);
+        assertIndexed(board);
+        Assertions.assertEquals(1, board.pieceCount(ChessGame.TeamColor.WHITE));
+
+        // Replacing a piece has to clear the old piece's bit
+        board.addPiece(new ChessPosition(4, 4), BLACK_QUEEN);
+        assertIndexed(board);
+        Assertions.assertEquals(0, board.getPieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
+
+        board.removePiece(new ChessPosition(4, 4));
+        board.removePiece(new ChessPosition(6, 6));
+        assertIndexed(board);
+        Assertions.assertEquals(1, board.pieceCount(ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    void bitboardsFollowReset() {
+        var board = new ChessBoard();
+        board.addPiece(new ChessPosition(4, 4), WHITE_KNIGHT);
+        board.resetBoard();
+        assertIndexed(board);
+        Assertions.assertEquals(16, board.pieceCount(ChessGame.TeamColor.WHITE));
+        Assertions.assertEquals(new ChessPosition(8, 5), board.kingPosition(ChessGame.TeamColor.BLACK));
+
+        // A second reset must not keep bits from the moves made in between
+        board.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        board.resetBoard();
+        assertIndexed(board);
+        Assertions.assertEquals(new ChessGame().getBoard(), board);
+    }
+
+    @Test
+    void gsonBoardIsIndexedOnFirstUse() {
+        var original = new ChessBoard();
+        original.resetBoard();
+        original.addPiece(new ChessPosition(4, 4), WHITE_KNIGHT);
+
+        // Gson skips the transient bitboards and swaps in its own square array
+        var gson = new Gson();
+        var board = gson.fromJson(gson.toJson(original), ChessBoard.class);
+
+        assertIndexed(board);
+        Assertions.assertEquals(original.getZobristKey(), board.getZobristKey());
+        Assertions.assertEquals(original, board);
+        Assertions.assertEquals(original.hashCode(), board.hashCode());
+
+        board.removePiece(new ChessPosition(4, 4));
+        assertIndexed(board);
+    }
+
+    @Test
+    void copyIsIndependent() {
+        var original = new ChessBoard();
+        original.resetBoard();
+        long key = original.getZobristKey();
+
+        var copy = new ChessBoard(original);
+        Assertions.assertEquals(original, copy);
+        assertIndexed(copy);
+
+        copy.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        copy.addPiece(new ChessPosition(5, 5), BLACK_QUEEN);
+        copy.removePiece(new ChessPosition(1, 1));
+        assertIndexed(copy);
+
+        assertIndexed(original);
+        Assertions.assertEquals(key, original.getZobristKey());
+        Assertions.assertEquals(new ChessGame().getBoard(), original);
+        Assertions.assertNotEquals(original, copy);
+
+        // Changes to the original must not reach the copy either
+        long copyKey = copy.getZobristKey();
+        original.removePiece(new ChessPosition(2, 1));
+        Assertions.assertEquals(copyKey, copy.getZobristKey());
+        Assertions.assertNotNull(copy.getPiece(new ChessPosition(2, 1)));
+    }
+}
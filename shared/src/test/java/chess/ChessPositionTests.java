@@ -0,0 +1,32 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class ChessPositionTests {
+
+    @Test
+    void cachedPositionsMatchConstructed() {
+        Set<Integer> hashes = new HashSet<>();
+        for(int row = 1; row <= 8; row++){
+            for(int col = 1; col <= 8; col++){
+                var cached = ChessPosition.of(row, col);
+                Assertions.assertSame(cached, ChessPosition.of(row, col));
+                Assertions.assertEquals(new ChessPosition(row, col), cached);
+                Assertions.assertEquals(new ChessPosition(row, col).hashCode(), cached.hashCode());
+                hashes.add(cached.hashCode());
+            }
+        }
+        Assertions.assertEquals(64, hashes.size());
+    }
+
+    @Test
+    void offBoardPositionsAreNotCached() {
+        var offBoard = ChessPosition.of(9, 1);
+        Assertions.assertEquals(9, offBoard.getRow());
+        Assertions.assertNotSame(offBoard, ChessPosition.of(9, 1));
+    }
+}
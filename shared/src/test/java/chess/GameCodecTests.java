@@ -0,0 +1,65 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+public class GameCodecTests {
+
+    @Test
+    void roundTripKeepsBoardAndState() throws InvalidMoveException {
+        var game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        game.makeMove(new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null));
+        game.setTeamTurn(ChessGame.TeamColor.WHITE);
+
+        byte[] data = GameCodec.encode(game);
+        Assertions.assertEquals(52, data.length);
+        Assertions.assertTrue(GameCodec.isEncoded(data));
+
+        var decoded = GameCodec.decode(data);
+        Assertions.assertEquals(game.getBoard(), decoded.getBoard());
+        Assertions.assertEquals(game.getTeamTurn(), decoded.getTeamTurn());
+        Assertions.assertEquals(game.toFen(), decoded.toFen());
+        Assertions.assertEquals(game.getPositionKey(), decoded.getPositionKey());
+        Assertions.assertFalse(decoded.checkGameStatus());
+        Assertions.assertEquals(game.getMoveHistory(), decoded.getMoveHistory());
+    }
+
+    @Test
+    void decodesVersionOneWithoutHistory() {
+        byte[] data = Arrays.copyOf(GameCodec.encode(new ChessGame()), 44);
+        data[2] = 1;
+
+        var decoded = GameCodec.decode(data);
+        Assertions.assertEquals(new ChessGame().getBoard(), decoded.getBoard());
+        Assertions.assertEquals(0, decoded.getPly());
+    }
+
+    @Test
+    void roundTripKeepsFinishedGame() {
+        var game = ChessGame.fromFen("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 b - - 12 40");
+        game.endGame();
+
+        var decoded = GameCodec.decode(GameCodec.encode(game));
+        Assertions.assertTrue(decoded.checkGameStatus());
+        Assertions.assertEquals("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 b - - 12 40", decoded.toFen());
+    }
+
+    @Test
+    void jsonIsNotMistakenForEncodedGame() {
+        byte[] json = new Gson().toJson(new ChessGame()).getBytes();
+        Assertions.assertFalse(GameCodec.isEncoded(json));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(json));
+    }
+
+    @Test
+    void rejectsOtherVersions() {
+        byte[] data = GameCodec.encode(new ChessGame());
+        data[2] = 99;
+        Assertions.assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(data));
+    }
+}
@@ -0,0 +1,144 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class MakeUnmakeTests {
+
+    // Quiet openings, captures both ways, and pawns that promote with and without capturing
+    private static final List<String> POSITIONS = List.of(
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1",
+            "r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w - - 4 4",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 b - - 12 40",
+            "r3k2r/1P4P1/8/3q4/8/8/1p4p1/R3K2R w - - 7 30",
+            "r3k2r/1P4P1/8/3Q4/8/8/1p4p1/R3K2R b - - 7 30"
+    );
+
+    @Test
+    void boardRestoresEveryMove() {
+        int promotions = 0;
+        int captures = 0;
+        for(String fen : POSITIONS){
+            var game = ChessGame.fromFen(fen);
+            var board = game.getBoard();
+            var before = new ChessBoard(board);
+            long key = board.getZobristKey();
+
+            var moves = new ArrayList<ChessMove>();
+            MoveGenerator.generateMoves(board, game.getTeamTurn(), moves);
+            for(ChessMove move : moves){
+                ChessPiece target = board.getPiece(move.getEndPosition());
+                MoveUndo undo = board.makeMove(move);
+                Assertions.assertEquals(target, undo.captured(), fen + " " + move);
+                Assertions.assertEquals(board.computeZobristKey(), board.getZobristKey(), fen + " " + move);
+                if(move.getPromotionPiece() != null){
+                    Assertions.assertEquals(move.getPromotionPiece(), board.getPiece(move.getEndPosition()).getPieceType());
+                    promotions++;
+                }
+                if(target != null){
+                    captures++;
+                }
+
+                board.unmakeMove(undo);
+                Assertions.assertEquals(before, board, fen + " " + move);
+                Assertions.assertEquals(key, board.getZobristKey(), fen + " " + move);
+                Assertions.assertEquals(key, board.computeZobristKey(), fen + " " + move);
+            }
+        }
+        Assertions.assertTrue(promotions > 0, "No promotions were tried");
+        Assertions.assertTrue(captures > 0, "No captures were tried");
+    }
+
+    @Test
+    void boardRestoresEveryPackedMove() {
+        int promotions = 0;
+        for(String fen : POSITIONS){
+            var game = ChessGame.fromFen(fen);
+            var board = game.getBoard();
+            var before = new ChessBoard(board);
+            long key = board.getZobristKey();
+
+            var moves = new MoveList();
+            MoveGenerator.generateMoves(board, game.getTeamTurn(), moves);
+            for(int i = 0; i < moves.size(); i++){
+                int move = moves.get(i);
+                String name = fen + " " + PackedMove.toString(move);
+                ChessPiece target = board.pieceAt(PackedMove.to(move));
+                ChessPiece captured = board.makeMove(move);
+                Assertions.assertEquals(target, captured, name);
+                Assertions.assertEquals(target != null, PackedMove.isCapture(move), name);
+                Assertions.assertEquals(board.computeZobristKey(), board.getZobristKey(), name);
+                if(PackedMove.isPromotion(move)){
+                    promotions++;
+                }
+
+                board.unmakeMove(move, captured);
+                Assertions.assertEquals(before, board, name);
+                Assertions.assertEquals(key, board.getZobristKey(), name);
+            }
+        }
+        Assertions.assertTrue(promotions > 0, "No promotions were tried");
+    }
+
+    @Test
+    void gameRestoresEveryMoveAndClock() throws InvalidMoveException {
+        for(String fen : POSITIONS){
+            var game = ChessGame.fromFen(fen);
+            var before = new ChessBoard(game.getBoard());
+            long key = game.getPositionKey();
+            int clock = game.getHalfmoveClock();
+            int ply = game.getPly();
+
+            var moves = new ArrayList<ChessMove>();
+            MoveGenerator.generateLegalMoves(game.getBoard(), game.getTeamTurn(), moves);
+            Assertions.assertFalse(moves.isEmpty(), fen);
+            for(ChessMove move : moves){
+                ChessPiece moved = game.getBoard().getPiece(move.getStartPosition());
+                boolean capture = game.getBoard().getPiece(move.getEndPosition()) != null;
+                game.makeMove(move);
+                boolean resetsClock = capture || moved.getPieceType() == ChessPiece.PieceType.PAWN;
+                Assertions.assertEquals(resetsClock ? 0 : clock + 1, game.getHalfmoveClock(), fen + " " + move);
+                Assertions.assertEquals(ply + 1, game.getPly(), fen + " " + move);
+
+                game.unmakeMove();
+                Assertions.assertEquals(before, game.getBoard(), fen + " " + move);
+                Assertions.assertEquals(key, game.getPositionKey(), fen + " " + move);
+                Assertions.assertEquals(clock, game.getHalfmoveClock(), fen + " " + move);
+                Assertions.assertEquals(ply, game.getPly(), fen + " " + move);
+                Assertions.assertEquals(fen, game.toFen());
+            }
+        }
+    }
+
+    @Test
+    void gameRestoresClockAcrossSeveralMoves() throws InvalidMoveException {
+        var game = ChessGame.fromFen(POSITIONS.get(1));
+        String fen = game.toFen();
+
+        // A quiet move, then a capture that resets the clock, then a recapture
+        var moves = List.of(
+                new ChessMove(new ChessPosition(1, 5), new ChessPosition(1, 6), null),
+                new ChessMove(new ChessPosition(6, 6), new ChessPosition(4, 5), null),
+                new ChessMove(new ChessPosition(3, 6), new ChessPosition(5, 5), null)
+        );
+        var clocks = new ArrayList<Integer>();
+        for(ChessMove move : moves){
+            clocks.add(game.getHalfmoveClock());
+            game.makeMove(move);
+            game.setTeamTurn(MoveGenerator.opponent(game.getTeamTurn()));
+        }
+        Assertions.assertEquals(List.of(4, 5, 0), clocks);
+        Assertions.assertEquals(0, game.getHalfmoveClock());
+
+        for(int i = moves.size() - 1; i >= 0; i--){
+            game.unmakeMove();
+            game.setTeamTurn(MoveGenerator.opponent(game.getTeamTurn()));
+            Assertions.assertEquals(clocks.get(i), game.getHalfmoveClock());
+        }
+        Assertions.assertEquals(fen, game.toFen());
+        Assertions.assertThrows(InvalidMoveException.class, game::unmakeMove);
+    }
+}
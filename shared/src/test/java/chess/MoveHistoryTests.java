@@ -0,0 +1,84 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class MoveHistoryTests {
+
+    private static final List<ChessMove> OPENING = List.of(
+            new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null),
+            new ChessMove(new ChessPosition(7, 4), new ChessPosition(5, 4), null),
+            new ChessMove(new ChessPosition(4, 5), new ChessPosition(5, 4), null),
+            new ChessMove(new ChessPosition(8, 4), new ChessPosition(5, 4), null)
+    );
+
+    private static ChessGame play(List<ChessMove> moves) throws InvalidMoveException {
+        var game = new ChessGame();
+        for(ChessMove move : moves){
+            game.makeMove(move);
+            game.setTeamTurn(game.getTeamTurn() == ChessGame.TeamColor.WHITE
+                    ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+        }
+        return game;
+    }
+
+    @Test
+    void historyRecordsMovesInOrder() throws InvalidMoveException {
+        var game = play(OPENING);
+        Assertions.assertEquals(OPENING, game.getMoveHistory());
+        Assertions.assertEquals(4, game.getPly());
+
+        game.unmakeMove();
+        Assertions.assertEquals(OPENING.subList(0, 3), game.getMoveHistory());
+    }
+
+    @Test
+    void replayRebuildsPosition() throws InvalidMoveException {
+        var played = play(OPENING);
+
+        var replayed = new ChessGame();
+        for(ChessMove move : OPENING){
+            replayed.replay(PackedMove.fromChessMove(move));
+        }
+
+        Assertions.assertEquals(played.toFen(), replayed.toFen());
+        Assertions.assertEquals(played.getMoveHistory(), replayed.getMoveHistory());
+    }
+
+    @Test
+    void replayContinuesFromSnapshot() throws InvalidMoveException {
+        var played = play(OPENING);
+        var snapshot = GameCodec.decode(GameCodec.encode(play(OPENING.subList(0, 2))));
+
+        for(ChessMove move : OPENING.subList(snapshot.getPly(), OPENING.size())){
+            snapshot.replay(PackedMove.fromChessMove(move));
+        }
+        Assertions.assertEquals(played.toFen(), snapshot.toFen());
+    }
+
+    @Test
+    void replayRejectsIllegalMove() {
+        var game = new ChessGame();
+        Assertions.assertThrows(InvalidMoveException.class, () -> game.replay(PackedMove.fromChessMove(
+                new ChessMove(new ChessPosition(2, 5), new ChessPosition(5, 5), null))));
+    }
+
+    @Test
+    void plyCarriesOverLegacyJsonAndNewBoards() throws InvalidMoveException {
+        var played = play(OPENING.subList(0, 2));
+
+        // Games saved as JSON before the codec have no history, only the move count
+        var legacy = new Gson().fromJson(new Gson().toJson(played), ChessGame.class);
+        Assertions.assertTrue(legacy.getMoveHistory().isEmpty());
+        Assertions.assertEquals(2, legacy.getPly());
+        legacy.replay(PackedMove.fromChessMove(OPENING.get(2)));
+        Assertions.assertEquals(3, legacy.getPly());
+
+        legacy.setBoard(new ChessBoard(legacy.getBoard()));
+        Assertions.assertEquals(3, legacy.getPly());
+        Assertions.assertEquals(3, GameCodec.decode(GameCodec.encode(legacy)).getPly());
+    }
+}
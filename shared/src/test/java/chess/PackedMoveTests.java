@@ -0,0 +1,109 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static passoff.chess.TestUtilities.loadBoard;
+
+public class PackedMoveTests {
+
+    @Test
+    void roundTripsEveryMove() {
+        for(int from = 0; from < 64; from++){
+            for(int to = 0; to < 64; to++){
+                for(ChessPiece.PieceType promotion : new ChessPiece.PieceType[]{null, ChessPiece.PieceType.QUEEN,
+                        ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.ROOK, ChessPiece.PieceType.BISHOP}){
+                    var move = new ChessMove(Bitboards.toPosition(from), Bitboards.toPosition(to), promotion);
+                    int packed = PackedMove.fromChessMove(move);
+
+                    Assertions.assertEquals(from, PackedMove.from(packed));
+                    Assertions.assertEquals(to, PackedMove.to(packed));
+                    Assertions.assertEquals(promotion, PackedMove.promotion(packed));
+                    Assertions.assertEquals(move, PackedMove.toChessMove(packed));
+                    Assertions.assertEquals(0, packed >>> 16, "Packed moves fit in 16 bits");
+                }
+            }
+        }
+    }
+
+    @Test
+    void packedGenerationMatchesObjects() {
+        var board = loadBoard("""
+                | |n| | | | | | |
+                |P| | | |k| | | |
+                | | | | | | | | |
+                | | | |p|P| | | |
+                | | | | | | | | |
+                | | |N| | |Q| | |
+                | | | | | | | | |
+                | | | | |K| | |R|
+                """);
+
+        List<ChessMove> expected = new ArrayList<>();
+        MoveGenerator.generateLegalMoves(board, ChessGame.TeamColor.WHITE, expected);
+        MoveList packed = new MoveList(4);
+        MoveGenerator.generateLegalMoves(board, ChessGame.TeamColor.WHITE, packed);
+
+        List<ChessMove> unpacked = new ArrayList<>();
+        packed.addTo(unpacked);
+        Assertions.assertEquals(new HashSet<>(expected), new HashSet<>(unpacked));
+        Assertions.assertEquals(expected.size(), packed.size());
+
+        int captures = 0;
+        for(int i = 0; i < packed.size(); i++){
+            int move = packed.get(i);
+            boolean capture = board.getPiece(Bitboards.toPosition(PackedMove.to(move))) != null;
+            Assertions.assertEquals(capture, PackedMove.isCapture(move));
+            captures += capture ? 1 : 0;
+        }
+        Assertions.assertTrue(captures > 0);
+    }
+
+    @Test
+    void packedMakeAndUnmakeRestoreBoard() {
+        var board = loadBoard("""
+                | |n| | | | | | |
+                |P| | | |k| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K| | | |
+                """);
+        var original = new ChessBoard(board);
+
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(board, ChessGame.TeamColor.WHITE, moves);
+        for(int i = 0; i < moves.size(); i++){
+            int move = moves.get(i);
+            ChessPiece captured = board.makeMove(move);
+            if(PackedMove.isPromotion(move)){
+                Assertions.assertEquals(PackedMove.promotion(move),
+                        board.getPiece(Bitboards.toPosition(PackedMove.to(move))).getPieceType());
+            }
+            board.unmakeMove(move, captured);
+
+            Assertions.assertEquals(original, board);
+            Assertions.assertEquals(board.computeZobristKey(), board.getZobristKey());
+        }
+    }
+
+    @Test
+    void clearedListIsReused() {
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(new ChessGame().getBoard(), ChessGame.TeamColor.WHITE, moves);
+        Assertions.assertEquals(20, moves.size());
+
+        moves.clear();
+        Assertions.assertTrue(moves.isEmpty());
+        MoveGenerator.generateLegalMoves(new ChessGame().getBoard(), ChessGame.TeamColor.BLACK, moves);
+        Assertions.assertEquals(20, moves.size());
+        Assertions.assertTrue(moves.contains(PackedMove.fromChessMove(
+                new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null))));
+    }
+}
@@ -0,0 +1,120 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static passoff.chess.TestUtilities.loadBoard;
+
+public class PerftTests {
+
+    @Test
+    void startingPosition() {
+        var game = new ChessGame();
+
+        Assertions.assertEquals(20, Perft.perft(game, 1));
+        Assertions.assertEquals(400, Perft.perft(game, 2));
+        Assertions.assertEquals(8902, Perft.perft(game, 3));
+        Assertions.assertEquals(197281, Perft.perft(game, 4));
+    }
+
+    @Test
+    void rookAndPawnEndgame() {
+        // Position 3 from the usual perft suite; deeper counts include en passant, which the engine does not play
+        var game = new ChessGame();
+        game.setBoard(loadBoard("""
+                | | | | | | | | |
+                | | |p| | | | | |
+                | | | |p| | | | |
+                |K|P| | | | | |r|
+                | |R| | | |p| |k|
+                | | | | | | | | |
+                | | | | |P| |P| |
+                | | | | | | | | |
+                """));
+
+        Assertions.assertEquals(14, Perft.perft(game, 1));
+        Assertions.assertEquals(191, Perft.perft(game, 2));
+    }
+
+    @Test
+    void divideMatchesPerft() {
+        var game = new ChessGame();
+        Map<ChessMove, Long> counts = Perft.divide(game, 3);
+
+        Assertions.assertEquals(20, counts.size());
+        Assertions.assertEquals(8902, counts.values().stream().mapToLong(Long::longValue).sum());
+        Assertions.assertTrue(Perft.formatDivide(counts).contains("e2e4: 600"));
+    }
+
+    @Test
+    void divideRejectsDepthBelowOne() {
+        var game = new ChessGame();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Perft.divide(game, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Perft.divide(game, -1));
+    }
+
+    @Test
+    void perftLeavesBoardUnchanged() {
+        var game = new ChessGame();
+        var expected = new ChessBoard();
+        expected.resetBoard();
+
+        Perft.perft(game, 3);
+
+        Assertions.assertEquals(expected, game.getBoard());
+        Assertions.assertEquals(game.getBoard().computeZobristKey(), game.getBoard().getZobristKey());
+    }
+
+    @Test
+    void parallelMatchesSequential() {
+        var game = new ChessGame();
+        var expected = new ChessBoard();
+        expected.resetBoard();
+
+        Assertions.assertEquals(197281, Perft.parallelPerft(game, 4));
+        Assertions.assertEquals(Perft.perft(game, 5), Perft.parallelPerft(game, 5));
+        Assertions.assertEquals(expected, game.getBoard());
+    }
+
+    @Test
+    void parallelManyPositions() {
+        var start = new ChessGame();
+        var endgame = new ChessGame();
+        endgame.setBoard(loadBoard("""
+                | | | | | | | | |
+                | | |p| | | | | |
+                | | | |p| | | | |
+                |K|P| | | | | |r|
+                | |R| | | |p| |k|
+                | | | | | | | | |
+                | | | | |P| |P| |
+                | | | | | | | | |
+                """));
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            // Deep enough that each position is split into subtasks rather than counted on one thread
+            long[] counts = Perft.parallelPerft(List.of(start, endgame, start), 4, pool);
+            Assertions.assertArrayEquals(new long[]{197281, Perft.perft(endgame, 4), 197281}, counts);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void copiedBoardIsIndependent() {
+        var board = new ChessBoard();
+        board.resetBoard();
+        var copy = new ChessBoard(board);
+        Assertions.assertEquals(board, copy);
+
+        copy.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        Assertions.assertNotEquals(board, copy);
+        Assertions.assertNotNull(board.getPiece(new ChessPosition(2, 5)));
+        Assertions.assertEquals(copy.computeZobristKey(), copy.getZobristKey());
+    }
+}
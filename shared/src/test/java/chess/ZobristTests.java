@@ -0,0 +1,126 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ZobristTests {
+
+    private static void assertKeyInSync(ChessBoard board) {
+        Assertions.assertEquals(board.computeZobristKey(), board.getZobristKey());
+    }
+
+    @Test
+    void keyFollowsAddAndRemove() {
+        var board = new ChessBoard();
+        Assertions.assertEquals(0, board.getZobristKey());
+
+        var knight = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT);
+        board.addPiece(new ChessPosition(3, 3), knight);
+        assertKeyInSync(board);
+        long withKnight = board.getZobristKey();
+        Assertions.assertNotEquals(0, withKnight);
+
+        // Same square, different piece or color, gives a different key
+        board.addPiece(new ChessPosition(3, 3), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        assertKeyInSync(board);
+        Assertions.assertNotEquals(withKnight, board.getZobristKey());
+
+        board.addPiece(new ChessPosition(3, 3), knight);
+        Assertions.assertEquals(withKnight, board.getZobristKey());
+
+        board.removePiece(new ChessPosition(3, 3));
+        assertKeyInSync(board);
+        Assertions.assertEquals(0, board.getZobristKey());
+
+        // Removing from an empty square leaves the key alone
+        board.removePiece(new ChessPosition(3, 3));
+        Assertions.assertEquals(0, board.getZobristKey());
+    }
+
+    @Test
+    void keyDependsOnPlacementNotOrder() {
+        var first = new ChessBoard();
+        var second = new ChessBoard();
+        var rook = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK);
+        var king = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING);
+
+        first.addPiece(new ChessPosition(1, 1), rook);
+        first.addPiece(new ChessPosition(8, 5), king);
+        second.addPiece(new ChessPosition(8, 5), king);
+        second.addPiece(new ChessPosition(1, 1), rook);
+
+        Assertions.assertEquals(first.getZobristKey(), second.getZobristKey());
+        Assertions.assertEquals(new ChessGame().getBoard().getZobristKey(), new ChessGame().getBoard().computeZobristKey());
+    }
+
+    @Test
+    void keyFollowsMakeAndUnmake() throws InvalidMoveException {
+        var game = new ChessGame();
+        var board = game.getBoard();
+        var keys = new ArrayList<Long>();
+
+        // Play a few plies, including a capture, checking the board key after every move
+        var moves = List.of(
+                new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null),
+                new ChessMove(new ChessPosition(7, 4), new ChessPosition(5, 4), null),
+                new ChessMove(new ChessPosition(4, 5), new ChessPosition(5, 4), null),
+                new ChessMove(new ChessPosition(8, 4), new ChessPosition(5, 4), null),
+                new ChessMove(new ChessPosition(1, 2), new ChessPosition(3, 3), null)
+        );
+        for(ChessMove move : moves){
+            keys.add(game.getPositionKey());
+            game.makeMove(move);
+            game.setTeamTurn(MoveGenerator.opponent(game.getTeamTurn()));
+            assertKeyInSync(board);
+        }
+
+        for(int i = moves.size() - 1; i >= 0; i--){
+            game.unmakeMove();
+            game.setTeamTurn(MoveGenerator.opponent(game.getTeamTurn()));
+            assertKeyInSync(board);
+            Assertions.assertEquals(keys.get(i), game.getPositionKey(), "after taking back " + moves.get(i));
+        }
+    }
+
+    @Test
+    void packedMovesKeepTheKeyInSync() {
+        var board = ChessGame.fromFen("r3k3/1P6/8/8/8/8/6p1/4K2R w - - 0 1").getBoard();
+        long key = board.getZobristKey();
+
+        var moves = new MoveList();
+        MoveGenerator.generateMoves(board, ChessGame.TeamColor.WHITE, moves);
+        MoveGenerator.generateMoves(board, ChessGame.TeamColor.BLACK, moves);
+        for(int i = 0; i < moves.size(); i++){
+            int move = moves.get(i);
+            ChessPiece captured = board.makeMove(move);
+            assertKeyInSync(board);
+            Assertions.assertNotEquals(key, board.getZobristKey(), PackedMove.toString(move));
+            board.unmakeMove(move, captured);
+            Assertions.assertEquals(key, board.getZobristKey(), PackedMove.toString(move));
+        }
+    }
+
+    @Test
+    void sideToMoveChangesThePositionKey() {
+        var game = new ChessGame();
+        long whiteToMove = game.getPositionKey();
+        Assertions.assertEquals(game.getBoard().getZobristKey(), whiteToMove);
+
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        long blackToMove = game.getPositionKey();
+        Assertions.assertNotEquals(whiteToMove, blackToMove);
+        Assertions.assertEquals(whiteToMove ^ Zobrist.BLACK_TO_MOVE, blackToMove);
+        // The board key itself only covers the pieces
+        Assertions.assertEquals(whiteToMove, game.getBoard().getZobristKey());
+
+        game.setTeamTurn(ChessGame.TeamColor.WHITE);
+        Assertions.assertEquals(whiteToMove, game.getPositionKey());
+
+        var fen = "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR ";
+        Assertions.assertNotEquals(ChessGame.fromFen(fen + "w - - 0 1").getPositionKey(),
+                ChessGame.fromFen(fen + "b - - 0 1").getPositionKey());
+    }
+}
@@ -0,0 +1,118 @@
+package websocket;
+
+import chess.ChessBoard;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import websocket.commands.UserGameCommand;
+import websocket.messages.ServerMessage;
+
+import java.nio.ByteBuffer;
+
+public class BinaryFramesTests {
+
+    @Test
+    void commandRoundTrip() {
+        var move = new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 1), ChessPiece.PieceType.QUEEN);
+        var command = new UserGameCommand(UserGameCommand.CommandType.MAKE_MOVE, "token-é", 42, move);
+
+        byte[] frame = BinaryFrames.encodeCommand(command);
+        var decoded = BinaryFrames.decodeCommand(frame, 0, frame.length);
+
+        Assertions.assertEquals(command, decoded);
+        Assertions.assertEquals(move, decoded.getMove());
+        Assertions.assertFalse(decoded.wantsMoveUpdates());
+        Assertions.assertTrue(decoded.wantsBinaryFrames(), "A binary command asks for binary replies");
+    }
+
+    @Test
+    void commandWithoutOptionalFields() {
+        var command = new UserGameCommand(UserGameCommand.CommandType.CONNECT, null, null, null, true, true);
+
+        byte[] padded = new byte[64];
+        byte[] frame = BinaryFrames.encodeCommand(command);
+        System.arraycopy(frame, 0, padded, 5, frame.length);
+        var decoded = BinaryFrames.decodeCommand(padded, 5, frame.length);
+
+        Assertions.assertEquals(command, decoded);
+        Assertions.assertNull(decoded.getMove());
+        Assertions.assertTrue(decoded.wantsMoveUpdates());
+    }
+
+    @Test
+    void loadGameIsFarSmallerThanJson() {
+        var board = new ChessBoard();
+        board.resetBoard();
+        var message = new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME, board);
+
+        byte[] frame = BinaryFrames.encodeMessage(message);
+        Assertions.assertEquals(34, frame.length);
+        Assertions.assertTrue(new Gson().toJson(message).length() > frame.length * 30);
+
+        var decoded = BinaryFrames.decodeMessage(ByteBuffer.wrap(frame));
+        Assertions.assertEquals(ServerMessage.ServerMessageType.LOAD_GAME, decoded.getServerMessageType());
+        Assertions.assertEquals(board, decoded.getGame());
+    }
+
+    @Test
+    void moveRoundTrip() {
+        var move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        var message = new ServerMessage(move, 17, 0x8000_1234_5678_9ABCL);
+
+        byte[] frame = BinaryFrames.encodeMessage(message);
+        Assertions.assertEquals(16, frame.length);
+
+        var decoded = BinaryFrames.decodeMessage(ByteBuffer.wrap(frame));
+        Assertions.assertEquals(ServerMessage.ServerMessageType.MOVE, decoded.getServerMessageType());
+        Assertions.assertEquals(move, decoded.getMove());
+        Assertions.assertEquals(17, decoded.getPly());
+        Assertions.assertEquals(0x8000_1234_5678_9ABCL, decoded.getPositionHash());
+    }
+
+    @Test
+    void textMessagesRoundTrip() {
+        var notification = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION, "café joined");
+        var error = new ServerMessage(ServerMessage.ServerMessageType.ERROR, "Error: not your turn");
+
+        var decodedNotification = BinaryFrames.decodeMessage(ByteBuffer.wrap(BinaryFrames.encodeMessage(notification)));
+        var decodedError = BinaryFrames.decodeMessage(ByteBuffer.wrap(BinaryFrames.encodeMessage(error)));
+
+        Assertions.assertEquals("café joined", decodedNotification.getMessage());
+        Assertions.assertEquals("Error: not your turn", decodedError.getErrorMessage());
+    }
+
+    @Test
+    void malformedFramesAreRejected() {
+        byte[] frame = BinaryFrames.encodeMessage(new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION, "hi"));
+
+        byte[] truncated = new byte[frame.length - 1];
+        System.arraycopy(frame, 0, truncated, 0, truncated.length);
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> BinaryFrames.decodeMessage(ByteBuffer.wrap(truncated)));
+
+        byte[] wrongVersion = frame.clone();
+        wrongVersion[0] = 9;
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> BinaryFrames.decodeMessage(ByteBuffer.wrap(wrongVersion)));
+
+        byte[] unknownType = {BinaryFrames.VERSION, 100, 0, 0};
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> BinaryFrames.decodeCommand(unknownType, 0, unknownType.length));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> BinaryFrames.decodeCommand(new byte[0], 0, 0));
+    }
+
+    @Test
+    void unknownPromotionIsRejected() {
+        byte[] frame = BinaryFrames.encodeCommand(new UserGameCommand(UserGameCommand.CommandType.MAKE_MOVE,
+                "token", 1, new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 1), ChessPiece.PieceType.QUEEN)));
+        // Version, type and flags bytes, then the game ID; the move's high byte holds the promotion bits
+        int moveOffset = 3 + Integer.BYTES;
+        frame[moveOffset] |= 0x70;
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> BinaryFrames.decodeCommand(frame, 0, frame.length));
+    }
+}